@@ -0,0 +1,98 @@
+package com.smolka.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// seeded inputs, so every fork and every run of a benchmark sees the same grids
+public final class BenchmarkSquares {
+
+    public static final long SEED = 20240601L;
+
+    private BenchmarkSquares() {
+    }
+
+    // the cyclic square with shuffled rows, columns and symbols
+    public static Integer[][] fullSquare(int order, long seed) {
+        Random random = new Random(seed);
+        List<Integer> rows = shuffledIndices(order, random);
+        List<Integer> columns = shuffledIndices(order, random);
+        List<Integer> symbols = shuffledIndices(order, random);
+
+        Integer[][] result = new Integer[order][order];
+        for (int row = 0; row < order; row++) {
+            for (int column = 0; column < order; column++) {
+                result[rows.get(row)][columns.get(column)] = symbols.get((row + column) % order) + 1;
+            }
+        }
+        return result;
+    }
+
+    // every cell of a full square stays a clue with probability clueDensity, so the grid always has a completion
+    public static Integer[][] withClues(Integer[][] square, double clueDensity, long seed) {
+        Random random = new Random(seed);
+        Integer[][] result = new Integer[square.length][square.length];
+        for (int row = 0; row < square.length; row++) {
+            for (int column = 0; column < square.length; column++) {
+                if (random.nextDouble() < clueDensity) {
+                    result[row][column] = square[row][column];
+                }
+            }
+        }
+        return result;
+    }
+
+    // the last row repeats the value of the row above it in its last cell, so a check has to scan everything
+    public static Integer[][] withLateConflict(Integer[][] square) {
+        Integer[][] result = copy(square);
+        int last = square.length - 1;
+        result[last][last] = result[last - 1][last];
+        return result;
+    }
+
+    public static int[][] toPrimitive(Integer[][] square) {
+        int[][] result = new int[square.length][square.length];
+        for (int row = 0; row < square.length; row++) {
+            for (int column = 0; column < square.length; column++) {
+                result[row][column] = square[row][column] == null ? 0 : square[row][column];
+            }
+        }
+        return result;
+    }
+
+    public static Set<Integer> allElements(int order) {
+        return IntStream.rangeClosed(1, order).boxed().collect(Collectors.toUnmodifiableSet());
+    }
+
+    public static Integer[][] everest() {
+        return new Integer[][] {
+                { 8, null, null, null, null, null, null, null, null },
+                { null, null, 3, 6, null, null, null, null, null },
+                { null, 7, null, null, 9, null, 2, null, null },
+                { null, 5, null, null, null, 7, null, null, null },
+                { null, null, null, null, 4, 5, 7, null, null },
+                { null, null, null, 1, null, null, null, 3, null },
+                { null, null, 1, null, null, null, null, 6, 8 },
+                { null, null, 8, 5, null, null, null, 1, null },
+                { null, 9, null, null, null, null, 4, null, null },
+        };
+    }
+
+    private static Integer[][] copy(Integer[][] square) {
+        Integer[][] result = new Integer[square.length][];
+        for (int row = 0; row < square.length; row++) {
+            result[row] = square[row].clone();
+        }
+        return result;
+    }
+
+    private static List<Integer> shuffledIndices(int order, Random random) {
+        List<Integer> result = new ArrayList<>(IntStream.range(0, order).boxed().toList());
+        Collections.shuffle(result, random);
+        return result;
+    }
+}
@@ -0,0 +1,56 @@
+package com.smolka.benchmark;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.impl.LatinSquareImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class CheckBenchmark {
+
+    @Param({ "9", "16", "32", "100" })
+    public int order;
+
+    @Param({ "true", "false" })
+    public boolean valid;
+
+    private LatinSquare latinSquare;
+
+    private Integer[][] square;
+
+    private int[][] primitiveSquare;
+
+    @Setup
+    public void setUp() {
+        latinSquare = new LatinSquareImpl();
+        Integer[][] fullSquare = BenchmarkSquares.fullSquare(order, BenchmarkSquares.SEED);
+        square = valid ? fullSquare : BenchmarkSquares.withLateConflict(fullSquare);
+        primitiveSquare = BenchmarkSquares.toPrimitive(square);
+    }
+
+    @Benchmark
+    public boolean check() {
+        return latinSquare.check(square);
+    }
+
+    @Benchmark
+    public boolean checkPrimitive() {
+        return latinSquare.check(primitiveSquare);
+    }
+}
@@ -0,0 +1,62 @@
+package com.smolka.benchmark;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.impl.LatinSquareImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class FirstVariantBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class GeneratedGrid {
+
+        @Param({ "9", "12", "16" })
+        public int order;
+
+        @Param({ "0.3", "0.5", "0.7" })
+        public double clueDensity;
+
+        private final LatinSquare latinSquare = new LatinSquareImpl();
+
+        private Integer[][] field;
+
+        @Setup
+        public void setUp() {
+            field = BenchmarkSquares.withClues(BenchmarkSquares.fullSquare(order, BenchmarkSquares.SEED), clueDensity, BenchmarkSquares.SEED);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class EverestGrid {
+
+        private final LatinSquare latinSquare = new LatinSquareImpl();
+
+        private final Integer[][] field = BenchmarkSquares.everest();
+    }
+
+    @Benchmark
+    public Integer[][] getFirstVariant(GeneratedGrid grid) {
+        return grid.latinSquare.getFirstVariant(grid.field);
+    }
+
+    @Benchmark
+    public Integer[][] getFirstVariantEverest(EverestGrid grid) {
+        return grid.latinSquare.getFirstVariant(grid.field);
+    }
+}
@@ -0,0 +1,91 @@
+package com.smolka.benchmark;
+
+import com.smolka.latin.square.impl.PropagationMode;
+import com.smolka.latin.square.impl.SelectionMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class SelectionMatrixBenchmark {
+
+    @Param({ "9", "16", "25" })
+    public int order;
+
+    @Param({ "0.1", "0.2", "0.3" })
+    public double clueDensity;
+
+    @Param({ "SUB_SEGMENTS", "SUB_SEGMENTS_AND_ALL_DIFFERENT" })
+    public PropagationMode propagationMode;
+
+    private Integer[][] field;
+
+    private Set<Integer> allElements;
+
+    private SelectionMatrix<Integer> selectionMatrix;
+
+    private int decisionRow;
+
+    private int decisionColumn;
+
+    private Integer decisionValue;
+
+    @Setup
+    public void setUp() {
+        Integer[][] fullSquare = BenchmarkSquares.fullSquare(order, BenchmarkSquares.SEED);
+        field = BenchmarkSquares.withClues(fullSquare, clueDensity, BenchmarkSquares.SEED);
+        allElements = BenchmarkSquares.allElements(order);
+        selectionMatrix = new SelectionMatrix<>(field, allElements, Integer.class, propagationMode);
+
+        // a decision taken from the full square always propagates without a conflict
+        decisionRow = selectionMatrix.nextUnfilledRow(0);
+        decisionColumn = 0;
+        while (decisionRow >= 0 && selectionMatrix.getVariantsSize(decisionRow, decisionColumn) == 1) {
+            decisionColumn++;
+            if (decisionColumn == order) {
+                decisionColumn = 0;
+                decisionRow = selectionMatrix.nextUnfilledRow(decisionRow + 1);
+            }
+        }
+        if (decisionRow < 0) {
+            throw new RuntimeException("Field is solved by propagation alone");
+        }
+        decisionValue = fullSquare[decisionRow][decisionColumn];
+    }
+
+    // clues to fixpoint, the cost every solve pays up front
+    @Benchmark
+    public SelectionMatrix<Integer> propagateClues() {
+        return new SelectionMatrix<>(field, allElements, Integer.class, propagationMode);
+    }
+
+    @Benchmark
+    public SelectionMatrix<Integer> getCopy() {
+        return selectionMatrix.getCopy();
+    }
+
+    // one search step in trail mode: decide, propagate to fixpoint and undo
+    @Benchmark
+    public boolean setElementAndRollback() {
+        int checkpoint = selectionMatrix.checkpoint();
+        boolean valid = selectionMatrix.setElementToMatrixAndReturnValidity(decisionRow, decisionColumn, decisionValue);
+        selectionMatrix.rollback(checkpoint);
+        return valid;
+    }
+}
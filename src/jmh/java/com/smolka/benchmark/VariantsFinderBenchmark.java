@@ -0,0 +1,87 @@
+package com.smolka.benchmark;
+
+import com.smolka.latin.square.impl.RowBranchingStrategy;
+import com.smolka.latin.square.impl.SelectionMatrix;
+import com.smolka.latin.square.impl.VariantsFinder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// the row candidates on the row the solver would branch on first, through VariantsFinder and the row branching,
+// enumerated up to MAX_VARIANTS without touching the matrix
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class VariantsFinderBenchmark {
+
+    private static final int MAX_VARIANTS = 10000;
+
+    @Param({ "9", "12", "16" })
+    public int order;
+
+    @Param({ "0.1", "0.2", "0.3" })
+    public double clueDensity;
+
+    private Map<Integer, Set<Integer>> variantsMap;
+
+    private SelectionMatrix<Integer> selectionMatrix;
+
+    @Setup
+    public void setUp() {
+        Integer[][] field = BenchmarkSquares.withClues(BenchmarkSquares.fullSquare(order, BenchmarkSquares.SEED), clueDensity, BenchmarkSquares.SEED);
+        SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(field, BenchmarkSquares.allElements(order), Integer.class);
+
+        int row = selectionMatrix.getUnfilledRowWithMinimumVariants();
+        if (row < 0) {
+            throw new RuntimeException("Field is solved by propagation alone");
+        }
+
+        variantsMap = new HashMap<>();
+        for (int column = 0; column < order; column++) {
+            Set<Integer> variants = new LinkedHashSet<>();
+            for (int symbolIndex = selectionMatrix.nextVariant(row, column, 0); symbolIndex >= 0; symbolIndex = selectionMatrix.nextVariant(row, column, symbolIndex + 1)) {
+                variants.add(selectionMatrix.getSymbol(symbolIndex));
+            }
+            variantsMap.put(column, variants);
+        }
+        this.selectionMatrix = selectionMatrix;
+    }
+
+    @Benchmark
+    public int findVariantsWithCallback(Blackhole blackhole) {
+        int[] count = { 0 };
+        new VariantsFinder<Integer, Integer>().findVariantsWithCallback(variantsMap, variant -> {
+            blackhole.consume(variant);
+            return ++count[0] >= MAX_VARIANTS;
+        });
+        return count[0];
+    }
+
+    @Benchmark
+    public int rowBranchingAlternatives(Blackhole blackhole) {
+        int[] count = { 0 };
+        new RowBranchingStrategy().select(selectionMatrix).forEachAlternative(alternative -> {
+            blackhole.consume(alternative);
+            return ++count[0] >= MAX_VARIANTS;
+        });
+        return count[0];
+    }
+}
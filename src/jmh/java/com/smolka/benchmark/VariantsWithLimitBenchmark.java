@@ -0,0 +1,52 @@
+package com.smolka.benchmark;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.impl.LatinSquareImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// scores are invocations per second, every invocation asks for LIMIT variants; sparse small grids
+// may have fewer completions, so the score is not a variants rate
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class VariantsWithLimitBenchmark {
+
+    private static final int LIMIT = 1000;
+
+    @Param({ "6", "7", "9" })
+    public int order;
+
+    @Param({ "0.0", "0.1", "0.2" })
+    public double clueDensity;
+
+    private LatinSquare latinSquare;
+
+    private Integer[][] field;
+
+    @Setup
+    public void setUp() {
+        latinSquare = new LatinSquareImpl();
+        field = BenchmarkSquares.withClues(BenchmarkSquares.fullSquare(order, BenchmarkSquares.SEED), clueDensity, BenchmarkSquares.SEED);
+    }
+
+    @Benchmark
+    public List<Integer[][]> getVariantsWithLimit() {
+        return latinSquare.getVariantsWithLimit(field, LIMIT);
+    }
+}
@@ -0,0 +1,15 @@
+package com.smolka.latin.square;
+
+// shared between the caller and a running search, the search polls it and unwinds after cancel()
+public class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -1,6 +1,11 @@
 package com.smolka.latin.square;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface LatinSquare {
 
@@ -9,4 +14,116 @@ public interface LatinSquare {
     Integer[][] getFirstVariant(Integer[][] square);
 
     List<Integer[][]> getVariantsWithLimit(Integer[][] square, int limit);
+
+    // bounded by the deadline, node budget and cancellation token of the options;
+    // the result tells whether the search finished or was cut off
+    SolveResult getFirstVariant(Integer[][] square, SolveOptions options);
+
+    SolveResult getVariantsWithLimit(Integer[][] square, int limit, SolveOptions options);
+
+    VariantsIterator iterateVariants(Integer[][] square);
+
+    void visitVariants(Integer[][] square, SolutionSink sink);
+
+    default SolutionBuffer getVariantsBuffer(Integer[][] square, int limit, boolean offHeap) {
+        SolutionBuffer buffer = new SolutionBuffer(square.length, offHeap);
+        if (limit > 0) {
+            visitVariants(square, (grid, size) -> {
+                buffer.add(grid);
+                return buffer.getCount() < limit;
+            });
+        }
+        return buffer;
+    }
+
+    default long exportVariants(Integer[][] square, long limit, Path path) {
+        try (SolutionFileWriter writer = new SolutionFileWriter(path, square.length, limit)) {
+            if (limit > 0) {
+                visitVariants(square, (grid, size) -> {
+                    writer.add(grid);
+                    return writer.getCount() < limit;
+                });
+            }
+            return writer.getCount();
+        }
+    }
+
+    // counts completions up to limit without building them
+    long countCompletions(Integer[][] square, long limit);
+
+    default long countCompletions(Integer[][] square) {
+        return countCompletions(square, Long.MAX_VALUE);
+    }
+
+    default Stream<int[][]> streamVariants(Integer[][] square) {
+        VariantsIterator iterator = iterateVariants(square);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    // int[][] overloads, 0 marks an empty cell; apart from check they are adapters that box the clues
+    // and go through the Integer[][] methods
+
+    boolean check(int[][] square);
+
+    default int[][] getFirstVariant(int[][] square) {
+        Integer[][] result = getFirstVariant(toBoxed(square));
+        return result == null ? null : toPrimitive(result);
+    }
+
+    default List<int[][]> getVariantsWithLimit(int[][] square, int limit) {
+        return getVariantsWithLimit(toBoxed(square), limit).stream()
+                .map(LatinSquare::toPrimitive)
+                .toList();
+    }
+
+    default VariantsIterator iterateVariants(int[][] square) {
+        return iterateVariants(toBoxed(square));
+    }
+
+    default Stream<int[][]> streamVariants(int[][] square) {
+        return streamVariants(toBoxed(square));
+    }
+
+    default void visitVariants(int[][] square, SolutionSink sink) {
+        visitVariants(toBoxed(square), sink);
+    }
+
+    default SolutionBuffer getVariantsBuffer(int[][] square, int limit, boolean offHeap) {
+        return getVariantsBuffer(toBoxed(square), limit, offHeap);
+    }
+
+    default long exportVariants(int[][] square, long limit, Path path) {
+        return exportVariants(toBoxed(square), limit, path);
+    }
+
+    default long countCompletions(int[][] square, long limit) {
+        return countCompletions(toBoxed(square), limit);
+    }
+
+    default long countCompletions(int[][] square) {
+        return countCompletions(toBoxed(square), Long.MAX_VALUE);
+    }
+
+    private static Integer[][] toBoxed(int[][] square) {
+        Integer[][] result = new Integer[square.length][];
+        for (int row = 0; row < square.length; row++) {
+            result[row] = new Integer[square[row].length];
+            for (int column = 0; column < square[row].length; column++) {
+                result[row][column] = square[row][column] == 0 ? null : square[row][column];
+            }
+        }
+        return result;
+    }
+
+    private static int[][] toPrimitive(Integer[][] square) {
+        int[][] result = new int[square.length][];
+        for (int row = 0; row < square.length; row++) {
+            result[row] = new int[square[row].length];
+            for (int column = 0; column < square[row].length; column++) {
+                result[row][column] = square[row][column] == null ? 0 : square[row][column];
+            }
+        }
+        return result;
+    }
 }
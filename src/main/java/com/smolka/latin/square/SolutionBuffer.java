@@ -0,0 +1,139 @@
+package com.smolka.latin.square;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// squares are stored as fixed-width SolutionEncoding records in chunks,
+// so the buffer grows without copying and is not limited by one ByteBuffer
+public class SolutionBuffer implements SolutionSink, Iterable<int[][]> {
+
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private final int size;
+
+    private final SolutionEncoding encoding;
+
+    private final int recordBytes;
+
+    private final int recordsPerChunk;
+
+    private final boolean offHeap;
+
+    private final List<ByteBuffer> chunks;
+
+    private int count;
+
+    public SolutionBuffer(int size) {
+        this(size, false);
+    }
+
+    public SolutionBuffer(int size, boolean offHeap) {
+        this.size = size;
+        this.encoding = SolutionEncoding.forSize(size);
+        this.recordBytes = encoding.getRecordBytes(size);
+        this.recordsPerChunk = Math.max(1, CHUNK_BYTES / recordBytes);
+        this.offHeap = offHeap;
+        this.chunks = new ArrayList<>();
+        this.count = 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public SolutionEncoding getEncoding() {
+        return encoding;
+    }
+
+    public int getRecordBytes() {
+        return recordBytes;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    @Override
+    public boolean accept(int[] grid, int size) {
+        add(grid);
+        return true;
+    }
+
+    // grid is row-major with values 1..size
+    public void add(int[] grid) {
+        if (grid.length != size * size) {
+            throw new RuntimeException("Grid does not match square size %s".formatted(size));
+        }
+        if (count == Integer.MAX_VALUE) {
+            throw new RuntimeException("Solution buffer is full");
+        }
+
+        int chunkIndex = count / recordsPerChunk;
+        if (chunkIndex == chunks.size()) {
+            int chunkBytes = recordsPerChunk * recordBytes;
+            ByteBuffer chunk = offHeap ? ByteBuffer.allocateDirect(chunkBytes) : ByteBuffer.allocate(chunkBytes);
+            chunks.add(chunk.order(ByteOrder.LITTLE_ENDIAN));
+        }
+
+        encoding.write(grid, size, chunks.get(chunkIndex), (count % recordsPerChunk) * recordBytes);
+        count++;
+    }
+
+    // row-major values 1..size of the square at index, written without allocation
+    public void decode(int index, int[] target) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        encoding.read(chunks.get(index / recordsPerChunk), (index % recordsPerChunk) * recordBytes, size, target);
+    }
+
+    public int[][] get(int index) {
+        int[] grid = new int[size * size];
+        decode(index, grid);
+
+        int[][] result = new int[size][size];
+        for (int row = 0; row < size; row++) {
+            System.arraycopy(grid, row * size, result[row], 0, size);
+        }
+        return result;
+    }
+
+    // copies the raw record at index into target starting at targetOffset
+    public void copyRecord(int index, byte[] target, int targetOffset) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        chunks.get(index / recordsPerChunk).get((index % recordsPerChunk) * recordBytes, target, targetOffset, recordBytes);
+    }
+
+    @Override
+    public Iterator<int[][]> iterator() {
+        return new Iterator<>() {
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < count;
+            }
+
+            @Override
+            public int[][] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package com.smolka.latin.square;
+
+import java.nio.ByteBuffer;
+
+// fixed-width record of a square: value - 1 per cell in row-major order,
+// buffers are expected in little-endian order
+public enum SolutionEncoding {
+    NIBBLE,
+    BYTE,
+    SHORT;
+
+    public static SolutionEncoding forSize(int size) {
+        if (size <= 16) {
+            return NIBBLE;
+        }
+        if (size <= 256) {
+            return BYTE;
+        }
+        if (size <= 65536) {
+            return SHORT;
+        }
+        throw new RuntimeException("Square size %s is too big".formatted(size));
+    }
+
+    public int getRecordBytes(int size) {
+        int cells = size * size;
+        return switch (this) {
+            case NIBBLE -> (cells + 1) / 2;
+            case BYTE -> cells;
+            case SHORT -> 2 * cells;
+        };
+    }
+
+    // grid is row-major with values 1..size
+    public void write(int[] grid, int size, ByteBuffer buffer, int offset) {
+        int cells = size * size;
+        switch (this) {
+            case NIBBLE -> {
+                for (int cell = 0; cell < cells; cell += 2) {
+                    int low = encodeValue(grid[cell], size);
+                    int high = cell + 1 < cells ? encodeValue(grid[cell + 1], size) : 0;
+                    buffer.put(offset + (cell >>> 1), (byte) (low | (high << 4)));
+                }
+            }
+            case BYTE -> {
+                for (int cell = 0; cell < cells; cell++) {
+                    buffer.put(offset + cell, (byte) encodeValue(grid[cell], size));
+                }
+            }
+            case SHORT -> {
+                for (int cell = 0; cell < cells; cell++) {
+                    buffer.putShort(offset + 2 * cell, (short) encodeValue(grid[cell], size));
+                }
+            }
+        }
+    }
+
+    public void read(ByteBuffer buffer, int offset, int size, int[] target) {
+        int cells = size * size;
+        switch (this) {
+            case NIBBLE -> {
+                for (int cell = 0; cell < cells; cell++) {
+                    int packed = buffer.get(offset + (cell >>> 1));
+                    target[cell] = ((cell & 1) == 0 ? packed & 0x0F : (packed >>> 4) & 0x0F) + 1;
+                }
+            }
+            case BYTE -> {
+                for (int cell = 0; cell < cells; cell++) {
+                    target[cell] = (buffer.get(offset + cell) & 0xFF) + 1;
+                }
+            }
+            case SHORT -> {
+                for (int cell = 0; cell < cells; cell++) {
+                    target[cell] = (buffer.getShort(offset + 2 * cell) & 0xFFFF) + 1;
+                }
+            }
+        }
+    }
+
+    private static int encodeValue(int value, int size) {
+        if (value < 1 || value > size) {
+            throw new RuntimeException("Value %s is out of square size %s".formatted(value, size));
+        }
+        return value - 1;
+    }
+}
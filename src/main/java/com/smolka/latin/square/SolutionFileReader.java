@@ -0,0 +1,153 @@
+package com.smolka.latin.square;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// maps a file of SolutionFileWriter in read-only windows of whole records and decodes squares in place
+public class SolutionFileReader implements Iterable<int[][]>, AutoCloseable {
+
+    static final int WINDOW_BYTES = 1 << 26;
+
+    private final FileChannel channel;
+
+    private final int size;
+
+    private final SolutionEncoding encoding;
+
+    private final int recordBytes;
+
+    private final long count;
+
+    private final int recordsPerWindow;
+
+    private final List<MappedByteBuffer> windows;
+
+    public SolutionFileReader(Path path) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+            ByteBuffer header = ByteBuffer.allocate(SolutionFileWriter.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new RuntimeException("Solution file header is truncated");
+                }
+            }
+            header.flip();
+
+            if (header.getInt() != SolutionFileWriter.MAGIC || header.getShort() != SolutionFileWriter.VERSION) {
+                throw new RuntimeException("Not a solution file");
+            }
+            int encodingOrdinal = header.get();
+            header.get();
+            this.size = header.getInt();
+            this.recordBytes = header.getInt();
+            this.count = header.getLong();
+
+            if (encodingOrdinal < 0 || encodingOrdinal >= SolutionEncoding.values().length) {
+                throw new RuntimeException("Unknown solution encoding %s".formatted(encodingOrdinal));
+            }
+            this.encoding = SolutionEncoding.values()[encodingOrdinal];
+            if (encoding.getRecordBytes(size) != recordBytes) {
+                throw new RuntimeException("Solution file header is inconsistent");
+            }
+            if (channel.size() < SolutionFileWriter.HEADER_BYTES + count * recordBytes) {
+                throw new RuntimeException("Solution file is truncated");
+            }
+
+            this.recordsPerWindow = Math.max(1, WINDOW_BYTES / recordBytes);
+            this.windows = new ArrayList<>();
+            for (long first = 0; first < count; first += recordsPerWindow) {
+                long records = Math.min(recordsPerWindow, count - first);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        SolutionFileWriter.HEADER_BYTES + first * recordBytes, records * recordBytes);
+                window.order(ByteOrder.LITTLE_ENDIAN);
+                windows.add(window);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public SolutionEncoding getEncoding() {
+        return encoding;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // row-major values 1..size of the square at index, written without allocation
+    public void decode(long index, int[] target) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index %s is out of %s squares".formatted(index, count));
+        }
+
+        MappedByteBuffer window = windows.get((int) (index / recordsPerWindow));
+        encoding.read(window, (int) (index % recordsPerWindow) * recordBytes, size, target);
+    }
+
+    public int[][] get(long index) {
+        int[] grid = new int[size * size];
+        decode(index, grid);
+
+        int[][] result = new int[size][size];
+        for (int row = 0; row < size; row++) {
+            System.arraycopy(grid, row * size, result[row], 0, size);
+        }
+        return result;
+    }
+
+    // passes every square to the sink through one reused grid
+    public void visit(SolutionSink sink) {
+        int[] grid = new int[size * size];
+        for (long index = 0; index < count; index++) {
+            decode(index, grid);
+            if (!sink.accept(grid, size)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<int[][]> iterator() {
+        return new Iterator<>() {
+
+            private long index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < count;
+            }
+
+            @Override
+            public int[][] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
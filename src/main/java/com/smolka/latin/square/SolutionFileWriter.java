@@ -0,0 +1,129 @@
+package com.smolka.latin.square;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// layout, little-endian: int magic, short version, byte encoding, byte reserved, int order,
+// int record bytes, long count, 8 reserved bytes, then count fixed-width SolutionEncoding records
+public class SolutionFileWriter implements SolutionSink, AutoCloseable {
+
+    static final int MAGIC = 0x4C535142;
+
+    static final short VERSION = 1;
+
+    static final int HEADER_BYTES = 32;
+
+    static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+
+    private final int size;
+
+    private final SolutionEncoding encoding;
+
+    private final int recordBytes;
+
+    private final ByteBuffer buffer;
+
+    private long count;
+
+    private boolean closed;
+
+    public SolutionFileWriter(Path path, int size) {
+        this(path, size, Long.MAX_VALUE);
+    }
+
+    // the records are buffered on the heap, expectedCount only keeps the buffer small for short exports
+    public SolutionFileWriter(Path path, int size, long expectedCount) {
+        this.size = size;
+        this.encoding = SolutionEncoding.forSize(size);
+        this.recordBytes = encoding.getRecordBytes(size);
+        int bufferRecords = (int) Math.max(1, Math.min(expectedCount, Math.max(1, BUFFER_BYTES / recordBytes)));
+        this.buffer = ByteBuffer.allocate(bufferRecords * recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+        this.count = 0;
+
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            writeHeader();
+            channel.position(HEADER_BYTES);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean accept(int[] grid, int size) {
+        add(grid);
+        return true;
+    }
+
+    // grid is row-major with values 1..size
+    public void add(int[] grid) {
+        if (closed) {
+            throw new RuntimeException("Writer is closed");
+        }
+        if (grid.length != size * size) {
+            throw new RuntimeException("Grid does not match square size %s".formatted(size));
+        }
+
+        if (buffer.remaining() < recordBytes) {
+            flush();
+        }
+
+        encoding.write(grid, size, buffer, buffer.position());
+        buffer.position(buffer.position() + recordBytes);
+        count++;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try (channel) {
+            flush();
+            writeHeader();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void flush() {
+        try {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC)
+                .putShort(VERSION)
+                .put((byte) encoding.ordinal())
+                .put((byte) 0)
+                .putInt(size)
+                .putInt(recordBytes)
+                .putLong(count);
+        header.clear();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.smolka.latin.square;
+
+@FunctionalInterface
+public interface SolutionSink {
+
+    // grid is the row-major view of the current variant, it is reused for the next one
+    // and must be neither modified nor kept after the call; returns false to stop the search
+    boolean accept(int[] grid, int size);
+}
@@ -0,0 +1,38 @@
+package com.smolka.latin.square;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// null deadline and token and a node budget of Long.MAX_VALUE leave the search unbounded
+public record SolveOptions(
+        Instant deadline,
+        long nodeBudget,
+        CancellationToken cancellationToken
+) {
+
+    public SolveOptions {
+        if (nodeBudget < 0) {
+            throw new RuntimeException("Node budget must not be negative");
+        }
+    }
+
+    public static SolveOptions unlimited() {
+        return new SolveOptions(null, Long.MAX_VALUE, null);
+    }
+
+    public SolveOptions withDeadline(Instant deadline) {
+        return new SolveOptions(deadline, nodeBudget, cancellationToken);
+    }
+
+    public SolveOptions withTimeout(Duration timeout) {
+        return withDeadline(Instant.now().plus(timeout));
+    }
+
+    public SolveOptions withNodeBudget(long nodeBudget) {
+        return new SolveOptions(deadline, nodeBudget, cancellationToken);
+    }
+
+    public SolveOptions withCancellationToken(CancellationToken cancellationToken) {
+        return new SolveOptions(deadline, nodeBudget, cancellationToken);
+    }
+}
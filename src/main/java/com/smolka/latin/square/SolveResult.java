@@ -0,0 +1,18 @@
+package com.smolka.latin.square;
+
+import java.util.List;
+
+// a cut off result holds the variants found before the budget ran out
+public record SolveResult(
+        List<Integer[][]> variants,
+        SolveStatus status
+) {
+
+    public boolean isComplete() {
+        return status.isComplete();
+    }
+
+    public Integer[][] getFirstVariant() {
+        return variants.isEmpty() ? null : variants.getFirst();
+    }
+}
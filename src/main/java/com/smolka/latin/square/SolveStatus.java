@@ -0,0 +1,12 @@
+package com.smolka.latin.square;
+
+public enum SolveStatus {
+    COMPLETE,
+    DEADLINE_EXCEEDED,
+    NODE_BUDGET_EXHAUSTED,
+    CANCELLED;
+
+    public boolean isComplete() {
+        return this == COMPLETE;
+    }
+}
@@ -0,0 +1,11 @@
+package com.smolka.latin.square;
+
+import java.util.Iterator;
+
+// the search behind the iterator pauses between pulls; close() stops it when the rest is not needed.
+// An iterator dropped before it is exhausted or closed keeps its search thread parked and the search state alive
+public interface VariantsIterator extends Iterator<int[][]>, AutoCloseable {
+
+    @Override
+    void close();
+}
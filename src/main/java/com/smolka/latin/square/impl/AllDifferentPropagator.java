@@ -0,0 +1,285 @@
+package com.smolka.latin.square.impl;
+
+import java.util.Arrays;
+
+public class AllDifferentPropagator {
+
+    private static final int NONE = -1;
+
+    private final int symbolsCount;
+
+    private final int wordsPerCell;
+
+    private final int[] variableMatches;
+
+    private final int[] valueMatches;
+
+    private final int[] visitMarks;
+
+    private int visitMark;
+
+    private final int[] valueVariablesStart;
+
+    private final int[] valueVariables;
+
+    private final boolean[] reachableFromFreeValue;
+
+    private final int[] nodeQueue;
+
+    private final int[] sccIndices;
+
+    private final int[] sccLowLinks;
+
+    private final int[] sccComponents;
+
+    private final boolean[] sccOnStack;
+
+    private final int[] sccStack;
+
+    private int sccStackSize;
+
+    private int sccCounter;
+
+    private int sccComponentCounter;
+
+    private final long[] unsupportedVariants;
+
+    public AllDifferentPropagator(int capacity, int symbolsCount, int wordsPerCell) {
+        this.symbolsCount = symbolsCount;
+        this.wordsPerCell = wordsPerCell;
+        this.variableMatches = new int[capacity];
+        this.valueMatches = new int[symbolsCount];
+        this.visitMarks = new int[symbolsCount];
+        this.visitMark = 0;
+        this.valueVariablesStart = new int[symbolsCount + 1];
+        this.valueVariables = new int[capacity * symbolsCount];
+        this.reachableFromFreeValue = new boolean[symbolsCount];
+        this.nodeQueue = new int[capacity + symbolsCount];
+        this.sccIndices = new int[capacity + symbolsCount];
+        this.sccLowLinks = new int[capacity + symbolsCount];
+        this.sccComponents = new int[capacity + symbolsCount];
+        this.sccOnStack = new boolean[capacity + symbolsCount];
+        this.sccStack = new int[capacity + symbolsCount];
+        this.unsupportedVariants = new long[capacity * wordsPerCell];
+    }
+
+    // variables are the cells of the segment, values are the symbol indices;
+    // after a successful call getUnsupportedVariants() holds, per segment position, the variants
+    // which do not belong to any maximum matching and therefore can be removed
+    public boolean propagateAndReturnValidity(long[] domains, int[] cells, int length) {
+        buildValueVariables(domains, cells, length);
+
+        if (!findMaximumMatching(domains, cells, length)) {
+            return false;
+        }
+
+        markValuesReachableFromFreeValues(length);
+        findStronglyConnectedComponents(length);
+
+        Arrays.fill(unsupportedVariants, 0, length * wordsPerCell, 0L);
+        for (int variable = 0; variable < length; variable++) {
+            int offset = cells[variable] * wordsPerCell;
+            for (int word = 0; word < wordsPerCell; word++) {
+                long bits = domains[offset + word];
+                while (bits != 0L) {
+                    int value = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+
+                    if (variableMatches[variable] == value || reachableFromFreeValue[value]) {
+                        continue;
+                    }
+                    if (sccComponents[variable] == sccComponents[length + value]) {
+                        continue;
+                    }
+                    unsupportedVariants[variable * wordsPerCell + (value >>> 6)] |= 1L << value;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    public long[] getUnsupportedVariants() {
+        return unsupportedVariants;
+    }
+
+    public int getUnsupportedVariantsOffset(int position) {
+        return position * wordsPerCell;
+    }
+
+    private void buildValueVariables(long[] domains, int[] cells, int length) {
+        Arrays.fill(valueVariablesStart, 0);
+        for (int variable = 0; variable < length; variable++) {
+            int offset = cells[variable] * wordsPerCell;
+            for (int word = 0; word < wordsPerCell; word++) {
+                long bits = domains[offset + word];
+                while (bits != 0L) {
+                    valueVariablesStart[word * Long.SIZE + Long.numberOfTrailingZeros(bits) + 1]++;
+                    bits &= bits - 1;
+                }
+            }
+        }
+        for (int value = 0; value < symbolsCount; value++) {
+            valueVariablesStart[value + 1] += valueVariablesStart[value];
+        }
+
+        int[] fillPositions = nodeQueue;
+        System.arraycopy(valueVariablesStart, 0, fillPositions, 0, symbolsCount);
+        for (int variable = 0; variable < length; variable++) {
+            int offset = cells[variable] * wordsPerCell;
+            for (int word = 0; word < wordsPerCell; word++) {
+                long bits = domains[offset + word];
+                while (bits != 0L) {
+                    int value = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    valueVariables[fillPositions[value]++] = variable;
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    private boolean findMaximumMatching(long[] domains, int[] cells, int length) {
+        Arrays.fill(variableMatches, 0, length, NONE);
+        Arrays.fill(valueMatches, NONE);
+
+        for (int variable = 0; variable < length; variable++) {
+            int offset = cells[variable] * wordsPerCell;
+            for (int word = 0; word < wordsPerCell && variableMatches[variable] == NONE; word++) {
+                long bits = domains[offset + word];
+                while (bits != 0L) {
+                    int value = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (valueMatches[value] == NONE) {
+                        variableMatches[variable] = value;
+                        valueMatches[value] = variable;
+                        break;
+                    }
+                }
+            }
+        }
+
+        for (int variable = 0; variable < length; variable++) {
+            if (variableMatches[variable] != NONE) {
+                continue;
+            }
+            nextVisitMark();
+            if (!findAugmentingPath(domains, cells, variable)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean findAugmentingPath(long[] domains, int[] cells, int variable) {
+        int offset = cells[variable] * wordsPerCell;
+        for (int word = 0; word < wordsPerCell; word++) {
+            long bits = domains[offset + word];
+            while (bits != 0L) {
+                int value = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (visitMarks[value] == visitMark) {
+                    continue;
+                }
+                visitMarks[value] = visitMark;
+
+                if (valueMatches[value] == NONE || findAugmentingPath(domains, cells, valueMatches[value])) {
+                    variableMatches[variable] = value;
+                    valueMatches[value] = variable;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void nextVisitMark() {
+        visitMark++;
+        if (visitMark == Integer.MAX_VALUE) {
+            Arrays.fill(visitMarks, 0);
+            visitMark = 1;
+        }
+    }
+
+    // alternating paths: value -> variable by a non-matching edge, variable -> value by its matching edge
+    private void markValuesReachableFromFreeValues(int length) {
+        Arrays.fill(reachableFromFreeValue, false);
+        int head = 0;
+        int tail = 0;
+        for (int value = 0; value < symbolsCount; value++) {
+            if (valueMatches[value] == NONE) {
+                reachableFromFreeValue[value] = true;
+                nodeQueue[tail++] = value;
+            }
+        }
+
+        while (head < tail) {
+            int value = nodeQueue[head++];
+            for (int index = valueVariablesStart[value]; index < valueVariablesStart[value + 1]; index++) {
+                int matchedValue = variableMatches[valueVariables[index]];
+                if (matchedValue != value && !reachableFromFreeValue[matchedValue]) {
+                    reachableFromFreeValue[matchedValue] = true;
+                    nodeQueue[tail++] = matchedValue;
+                }
+            }
+        }
+    }
+
+    private void findStronglyConnectedComponents(int length) {
+        int nodesCount = length + symbolsCount;
+        Arrays.fill(sccIndices, 0, nodesCount, NONE);
+        Arrays.fill(sccOnStack, 0, nodesCount, false);
+        sccStackSize = 0;
+        sccCounter = 0;
+        sccComponentCounter = 0;
+
+        for (int node = 0; node < nodesCount; node++) {
+            if (sccIndices[node] == NONE) {
+                strongConnect(node, length);
+            }
+        }
+    }
+
+    // nodes [0, length) are variables, nodes [length, length + symbolsCount) are values
+    private void strongConnect(int node, int length) {
+        sccIndices[node] = sccCounter;
+        sccLowLinks[node] = sccCounter;
+        sccCounter++;
+        sccStack[sccStackSize++] = node;
+        sccOnStack[node] = true;
+
+        if (node < length) {
+            int matchedValue = variableMatches[node];
+            if (matchedValue != NONE) {
+                visitSuccessor(node, length + matchedValue, length);
+            }
+        } else {
+            int value = node - length;
+            for (int index = valueVariablesStart[value]; index < valueVariablesStart[value + 1]; index++) {
+                int variable = valueVariables[index];
+                if (variableMatches[variable] != value) {
+                    visitSuccessor(node, variable, length);
+                }
+            }
+        }
+
+        if (sccLowLinks[node] == sccIndices[node]) {
+            int member;
+            do {
+                member = sccStack[--sccStackSize];
+                sccOnStack[member] = false;
+                sccComponents[member] = sccComponentCounter;
+            } while (member != node);
+            sccComponentCounter++;
+        }
+    }
+
+    private void visitSuccessor(int node, int successor, int length) {
+        if (sccIndices[successor] == NONE) {
+            strongConnect(successor, length);
+            sccLowLinks[node] = Math.min(sccLowLinks[node], sccLowLinks[successor]);
+        } else if (sccOnStack[successor]) {
+            sccLowLinks[node] = Math.min(sccLowLinks[node], sccIndices[successor]);
+        }
+    }
+}
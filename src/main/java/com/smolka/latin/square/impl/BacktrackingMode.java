@@ -0,0 +1,6 @@
+package com.smolka.latin.square.impl;
+
+public enum BacktrackingMode {
+    COPY,
+    TRAIL
+}
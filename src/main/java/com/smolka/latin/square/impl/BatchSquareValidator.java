@@ -0,0 +1,27 @@
+package com.smolka.latin.square.impl;
+
+// squares are stored one after another in row-major order with values 1..size
+public interface BatchSquareValidator {
+
+    String VECTOR_MODULE = "jdk.incubator.vector";
+
+    String VECTOR_VALIDATOR = "com.smolka.latin.square.impl.VectorBatchSquareValidator";
+
+    // the vector validator is built by the vector profile and linked only when the incubator module is resolved in the boot layer
+    static BatchSquareValidator create() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (BatchSquareValidator) Class.forName(VECTOR_VALIDATOR).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return scalar();
+            }
+        }
+        return scalar();
+    }
+
+    static BatchSquareValidator scalar() {
+        return new ScalarBatchSquareValidator();
+    }
+
+    boolean[] checkAll(int[] squares, int size);
+}
@@ -0,0 +1,14 @@
+package com.smolka.latin.square.impl;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+public interface Branch<T> {
+
+    void forEachAlternative(Function<BranchAlternative<T>, Boolean> callbackFunction);
+
+    // stopCondition is also polled while alternatives are generated
+    default void forEachAlternative(Function<BranchAlternative<T>, Boolean> callbackFunction, BooleanSupplier stopCondition) {
+        forEachAlternative(callbackFunction);
+    }
+}
@@ -0,0 +1,7 @@
+package com.smolka.latin.square.impl;
+
+@FunctionalInterface
+public interface BranchAlternative<T> {
+
+    boolean applyAndReturnValidity(SelectionMatrix<T> selectionMatrix);
+}
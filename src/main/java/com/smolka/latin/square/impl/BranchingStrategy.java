@@ -0,0 +1,35 @@
+package com.smolka.latin.square.impl;
+
+import java.util.Random;
+
+public interface BranchingStrategy {
+
+    static BranchingStrategy rows() {
+        return new RowBranchingStrategy();
+    }
+
+    static BranchingStrategy minimumVariantsCell() {
+        return new CellBranchingStrategy(false);
+    }
+
+    static BranchingStrategy minimumVariantsCellWithDegree() {
+        return new CellBranchingStrategy(true);
+    }
+
+    static BranchingStrategy randomizedRows(long seed) {
+        return new RowBranchingStrategy(new Random(seed));
+    }
+
+    static BranchingStrategy randomizedMinimumVariantsCell(long seed) {
+        return new CellBranchingStrategy(false, new Random(seed));
+    }
+
+    static BranchingStrategy randomizedMinimumVariantsCellWithDegree(long seed) {
+        return new CellBranchingStrategy(true, new Random(seed));
+    }
+
+    <T> Branch<T> select(SelectionMatrix<T> selectionMatrix);
+
+    // the same strategy with seeded random tie-breaking and value order
+    BranchingStrategy randomized(long seed);
+}
@@ -0,0 +1,176 @@
+package com.smolka.latin.square.impl;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.SolutionSink;
+import com.smolka.latin.square.SolveOptions;
+import com.smolka.latin.square.SolveResult;
+import com.smolka.latin.square.SolveStatus;
+import com.smolka.latin.square.VariantsIterator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// LRU cache of first variants keyed by the isotopy canonical form of the clues
+public class CachingLatinSquare implements LatinSquare {
+
+    private static final int[] NO_COMPLETION = new int[0];
+
+    private final LatinSquare latinSquare;
+
+    private final int capacity;
+
+    private final SquareValidator squareValidator;
+
+    private final LinkedHashMap<IsotopyCanonicalForm, int[]> completions;
+
+    private long hitsCount;
+
+    private long missesCount;
+
+    private long evictionsCount;
+
+    public CachingLatinSquare(int capacity) {
+        this(new LatinSquareImpl(), capacity);
+    }
+
+    public CachingLatinSquare(LatinSquare latinSquare, int capacity) {
+        if (capacity < 1) {
+            throw new RuntimeException("Cache capacity must be positive");
+        }
+
+        this.latinSquare = latinSquare;
+        this.capacity = capacity;
+        this.squareValidator = new SquareValidator();
+        this.completions = new LinkedHashMap<>(16, 0.75f, true);
+        this.hitsCount = 0;
+        this.missesCount = 0;
+        this.evictionsCount = 0;
+    }
+
+    @Override
+    public boolean check(Integer[][] square) {
+        return latinSquare.check(square);
+    }
+
+    @Override
+    public boolean check(int[][] square) {
+        return latinSquare.check(square);
+    }
+
+    @Override
+    public Integer[][] getFirstVariant(Integer[][] square) {
+        IsotopyCanonicalForm form = getCanonicalForm(square);
+        int[] cachedCompletion = getCachedCompletion(form);
+        if (cachedCompletion != null) {
+            return toVariant(form, cachedCompletion);
+        }
+
+        Integer[][] result = latinSquare.getFirstVariant(square);
+        putCompletion(form, result);
+        return result;
+    }
+
+    @Override
+    public SolveResult getFirstVariant(Integer[][] square, SolveOptions options) {
+        IsotopyCanonicalForm form = getCanonicalForm(square);
+        int[] cachedCompletion = getCachedCompletion(form);
+        if (cachedCompletion != null) {
+            Integer[][] variant = toVariant(form, cachedCompletion);
+            return new SolveResult(variant == null ? List.of() : List.<Integer[][]>of(variant), SolveStatus.COMPLETE);
+        }
+
+        SolveResult result = latinSquare.getFirstVariant(square, options);
+        if (result.isComplete()) {
+            putCompletion(form, result.getFirstVariant());
+        }
+        return result;
+    }
+
+    @Override
+    public List<Integer[][]> getVariantsWithLimit(Integer[][] square, int limit) {
+        return latinSquare.getVariantsWithLimit(square, limit);
+    }
+
+    @Override
+    public SolveResult getVariantsWithLimit(Integer[][] square, int limit, SolveOptions options) {
+        return latinSquare.getVariantsWithLimit(square, limit, options);
+    }
+
+    @Override
+    public VariantsIterator iterateVariants(Integer[][] square) {
+        return latinSquare.iterateVariants(square);
+    }
+
+    @Override
+    public void visitVariants(Integer[][] square, SolutionSink sink) {
+        latinSquare.visitVariants(square, sink);
+    }
+
+    @Override
+    public long countCompletions(Integer[][] square, long limit) {
+        return latinSquare.countCompletions(square, limit);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getSize() {
+        return completions.size();
+    }
+
+    public synchronized long getHitsCount() {
+        return hitsCount;
+    }
+
+    public synchronized long getMissesCount() {
+        return missesCount;
+    }
+
+    public synchronized long getEvictionsCount() {
+        return evictionsCount;
+    }
+
+    public synchronized double getHitRate() {
+        long lookupsCount = hitsCount + missesCount;
+        return lookupsCount == 0 ? 0 : (double) hitsCount / lookupsCount;
+    }
+
+    public synchronized void clear() {
+        completions.clear();
+    }
+
+    private IsotopyCanonicalForm getCanonicalForm(Integer[][] square) {
+        if (squareValidator.isInvalid(square)) {
+            throw new RuntimeException("Square is invalid");
+        }
+
+        return IsotopyCanonicalForm.of(square);
+    }
+
+    private synchronized int[] getCachedCompletion(IsotopyCanonicalForm form) {
+        int[] completion = completions.get(form);
+        if (completion == null) {
+            missesCount++;
+        } else {
+            hitsCount++;
+        }
+        return completion;
+    }
+
+    // racing solves of one form both store a valid completion, the later one stays
+    private synchronized void putCompletion(IsotopyCanonicalForm form, Integer[][] variant) {
+        completions.put(form, variant == null ? NO_COMPLETION : form.toCanonical(variant));
+        if (completions.size() > capacity) {
+            Iterator<IsotopyCanonicalForm> eldest = completions.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictionsCount++;
+        }
+    }
+
+    private Integer[][] toVariant(IsotopyCanonicalForm form, int[] cachedCompletion) {
+        return cachedCompletion == NO_COMPLETION ? null : form.toOriginal(cachedCompletion);
+    }
+}
@@ -0,0 +1,110 @@
+package com.smolka.latin.square.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class CellBranchingStrategy implements BranchingStrategy {
+
+    private final boolean degreeTieBreaking;
+
+    private final Random random;
+
+    public CellBranchingStrategy(boolean degreeTieBreaking) {
+        this(degreeTieBreaking, null);
+    }
+
+    // with a random the remaining ties are broken uniformly and the values are tried in shuffled order
+    public CellBranchingStrategy(boolean degreeTieBreaking, Random random) {
+        this.degreeTieBreaking = degreeTieBreaking;
+        this.random = random;
+    }
+
+    @Override
+    public <T> Branch<T> select(SelectionMatrix<T> selectionMatrix) {
+        if (selectionMatrix.isFilled()) {
+            return null;
+        }
+
+        int size = selectionMatrix.getSize();
+        int resultRow = -1;
+        int resultColumn = -1;
+        int minVariantsSize = Integer.MAX_VALUE;
+        int maxDegree = -1;
+        int tiesCount = 0;
+
+        for (int row = selectionMatrix.nextUnfilledRow(0); row >= 0; row = selectionMatrix.nextUnfilledRow(row + 1)) {
+            for (int column = 0; column < size; column++) {
+                int variantsSize = selectionMatrix.getVariantsSize(row, column);
+                if (variantsSize < 2 || variantsSize > minVariantsSize) {
+                    continue;
+                }
+
+                if (variantsSize < minVariantsSize) {
+                    resultRow = row;
+                    resultColumn = column;
+                    minVariantsSize = variantsSize;
+                    maxDegree = degreeTieBreaking ? getDegree(selectionMatrix, row, column) : -1;
+                    tiesCount = 1;
+                    continue;
+                }
+
+                int degree = degreeTieBreaking ? getDegree(selectionMatrix, row, column) : -1;
+                if (degree > maxDegree) {
+                    resultRow = row;
+                    resultColumn = column;
+                    maxDegree = degree;
+                    tiesCount = 1;
+                } else if (degree == maxDegree && random != null && random.nextInt(++tiesCount) == 0) {
+                    resultRow = row;
+                    resultColumn = column;
+                }
+            }
+
+            if (minVariantsSize == 2 && !degreeTieBreaking && random == null) {
+                break;
+            }
+        }
+
+        if (resultRow < 0) {
+            return null;
+        }
+
+        int row = resultRow;
+        int column = resultColumn;
+        List<T> variants = new ArrayList<>(minVariantsSize);
+        for (int symbolIndex = selectionMatrix.nextVariant(row, column, 0); symbolIndex >= 0; symbolIndex = selectionMatrix.nextVariant(row, column, symbolIndex + 1)) {
+            variants.add(selectionMatrix.getSymbol(symbolIndex));
+        }
+        if (random != null) {
+            Collections.shuffle(variants, random);
+        }
+
+        return callbackFunction -> {
+            for (T variant : variants) {
+                if (callbackFunction.apply(matrix -> matrix.setElementToMatrixAndReturnValidity(row, column, variant))) {
+                    return;
+                }
+            }
+        };
+    }
+
+    @Override
+    public BranchingStrategy randomized(long seed) {
+        return new CellBranchingStrategy(degreeTieBreaking, new Random(seed));
+    }
+
+    private int getDegree(SelectionMatrix<?> selectionMatrix, int row, int column) {
+        int degree = 0;
+        for (int index = 0; index < selectionMatrix.getSize(); index++) {
+            if (index != column && selectionMatrix.getVariantsSize(row, index) > 1) {
+                degree++;
+            }
+            if (index != row && selectionMatrix.getVariantsSize(index, column) > 1) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+}
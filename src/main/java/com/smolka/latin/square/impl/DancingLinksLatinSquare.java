@@ -0,0 +1,376 @@
+package com.smolka.latin.square.impl;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.SolutionSink;
+import com.smolka.latin.square.SolveOptions;
+import com.smolka.latin.square.SolveResult;
+import com.smolka.latin.square.VariantsIterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+public class DancingLinksLatinSquare implements LatinSquare {
+
+    private final SquareValidator squareValidator;
+
+    public DancingLinksLatinSquare() {
+        this.squareValidator = new SquareValidator();
+    }
+
+    @Override
+    public boolean check(Integer[][] square) {
+        return squareValidator.check(square);
+    }
+
+    @Override
+    public boolean check(int[][] square) {
+        return squareValidator.check(square);
+    }
+
+    @Override
+    public Integer[][] getFirstVariant(Integer[][] square) {
+        List<Integer[][]> result = getVariantsWithLimit(square, 1);
+        if (result.isEmpty()) {
+            return null;
+        }
+
+        return result.getFirst();
+    }
+
+    @Override
+    public SolveResult getFirstVariant(Integer[][] square, SolveOptions options) {
+        return getVariantsWithLimit(square, 1, options);
+    }
+
+    @Override
+    public List<Integer[][]> getVariantsWithLimit(Integer[][] square, int limit) {
+        return solveVariantsWithLimit(square, limit, SearchBudget.unlimited());
+    }
+
+    @Override
+    public SolveResult getVariantsWithLimit(Integer[][] square, int limit, SolveOptions options) {
+        SearchBudget budget = SearchBudget.of(options);
+        List<Integer[][]> result = solveVariantsWithLimit(square, limit, budget);
+        return new SolveResult(result, budget.getStatus());
+    }
+
+    private List<Integer[][]> solveVariantsWithLimit(Integer[][] square, int limit, SearchBudget budget) {
+        if (squareValidator.isInvalid(square)) {
+            throw new RuntimeException("Square is invalid");
+        }
+
+        List<Integer[][]> result = new ArrayList<>();
+        if (limit <= 0) {
+            return result;
+        }
+
+        int size = square.length;
+        ExactCoverMatrix exactCoverMatrix = new ExactCoverMatrix(square);
+        exactCoverMatrix.search(solution -> {
+            Integer[][] variant = new Integer[size][size];
+            for (int cell = 0; cell < solution.length; cell++) {
+                variant[cell / size][cell % size] = solution[cell];
+            }
+            result.add(variant);
+            return result.size() >= limit;
+        }, budget);
+
+        return result;
+    }
+
+    @Override
+    public VariantsIterator iterateVariants(Integer[][] square) {
+        if (squareValidator.isInvalid(square)) {
+            throw new RuntimeException("Square is invalid");
+        }
+
+        int size = square.length;
+        ExactCoverMatrix exactCoverMatrix = new ExactCoverMatrix(square);
+        return new SearchVariantsIterator(callbackFunction -> exactCoverMatrix.search(solution -> {
+            int[][] variant = new int[size][];
+            for (int row = 0; row < size; row++) {
+                variant[row] = Arrays.copyOfRange(solution, row * size, (row + 1) * size);
+            }
+            return callbackFunction.apply(variant);
+        }));
+    }
+
+    @Override
+    public void visitVariants(Integer[][] square, SolutionSink sink) {
+        if (squareValidator.isInvalid(square)) {
+            throw new RuntimeException("Square is invalid");
+        }
+
+        int size = square.length;
+        new ExactCoverMatrix(square).search(solution -> !sink.accept(solution, size));
+    }
+
+    @Override
+    public long countCompletions(Integer[][] square, long limit) {
+        if (squareValidator.isInvalid(square)) {
+            throw new RuntimeException("Square is invalid");
+        }
+        if (limit <= 0) {
+            return 0;
+        }
+
+        long[] count = { 0 };
+        new ExactCoverMatrix(square).search(solution -> ++count[0] >= limit);
+        return count[0];
+    }
+
+    // columns: [0, n^2) cell (r, c), [n^2, 2n^2) row r has symbol s, [2n^2, 3n^2) column c has symbol s;
+    // every candidate (r, c, s) of an empty cell is an exact cover row with one node in each of its three columns
+    private static class ExactCoverMatrix {
+
+        private static final int ROOT = 0;
+
+        private final Integer[][] square;
+
+        private final int size;
+
+        private final int[] left;
+
+        private final int[] right;
+
+        private final int[] up;
+
+        private final int[] down;
+
+        private final int[] columns;
+
+        private final int[] candidates;
+
+        private final int[] columnSizes;
+
+        private int nodesCount;
+
+        public ExactCoverMatrix(Integer[][] square) {
+            this.square = square;
+            this.size = square.length;
+
+            int columnsCount = 3 * size * size;
+            boolean[] satisfiedColumns = new boolean[columnsCount];
+            for (int row = 0; row < size; row++) {
+                for (int column = 0; column < size; column++) {
+                    if (square[row][column] != null) {
+                        int symbol = square[row][column] - 1;
+                        satisfiedColumns[cellColumn(row, column)] = true;
+                        satisfiedColumns[rowSymbolColumn(row, symbol)] = true;
+                        satisfiedColumns[columnSymbolColumn(column, symbol)] = true;
+                    }
+                }
+            }
+
+            int candidatesCount = 0;
+            for (int row = 0; row < size; row++) {
+                for (int column = 0; column < size; column++) {
+                    for (int symbol = 0; symbol < size; symbol++) {
+                        if (isCandidate(satisfiedColumns, row, column, symbol)) {
+                            candidatesCount++;
+                        }
+                    }
+                }
+            }
+
+            int capacity = 1 + columnsCount + 3 * candidatesCount;
+            this.left = new int[capacity];
+            this.right = new int[capacity];
+            this.up = new int[capacity];
+            this.down = new int[capacity];
+            this.columns = new int[capacity];
+            this.candidates = new int[capacity];
+            this.columnSizes = new int[columnsCount + 1];
+
+            left[ROOT] = ROOT;
+            right[ROOT] = ROOT;
+            for (int header = 1; header <= columnsCount; header++) {
+                up[header] = header;
+                down[header] = header;
+                columns[header] = header;
+                if (!satisfiedColumns[header - 1]) {
+                    left[header] = left[ROOT];
+                    right[header] = ROOT;
+                    right[left[ROOT]] = header;
+                    left[ROOT] = header;
+                }
+            }
+            this.nodesCount = columnsCount + 1;
+
+            for (int row = 0; row < size; row++) {
+                for (int column = 0; column < size; column++) {
+                    for (int symbol = 0; symbol < size; symbol++) {
+                        if (isCandidate(satisfiedColumns, row, column, symbol)) {
+                            addCandidate(row, column, symbol);
+                        }
+                    }
+                }
+            }
+        }
+
+        public void search(Function<int[], Boolean> callbackFunction) {
+            search(callbackFunction, SearchBudget.unlimited());
+        }
+
+        // callback receives a reused row-major grid of values and returns true when the search should stop;
+        // every covered column counts as a node of the budget
+        public void search(Function<int[], Boolean> callbackFunction, SearchBudget budget) {
+            int maxDepth = size * size;
+            int[] chosenColumns = new int[maxDepth + 1];
+            int[] chosenNodes = new int[maxDepth + 1];
+            int[] solution = new int[size * size];
+            int depth = 0;
+            boolean backtracking = false;
+
+            while (true) {
+                if (!backtracking) {
+                    if (right[ROOT] == ROOT) {
+                        writeSolution(solution, chosenNodes, depth);
+                        if (callbackFunction.apply(solution)) {
+                            return;
+                        }
+                        backtracking = true;
+                    } else {
+                        budget.countNode();
+                        if (budget.isExhausted()) {
+                            return;
+                        }
+                        int column = chooseColumn();
+                        if (columnSizes[column] == 0) {
+                            backtracking = true;
+                        } else {
+                            cover(column);
+                            chosenColumns[depth] = column;
+                            chosenNodes[depth] = down[column];
+                            selectNode(chosenNodes[depth]);
+                            depth++;
+                            continue;
+                        }
+                    }
+                }
+
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+                deselectNode(chosenNodes[depth]);
+                chosenNodes[depth] = down[chosenNodes[depth]];
+                if (chosenNodes[depth] == chosenColumns[depth]) {
+                    uncover(chosenColumns[depth]);
+                    continue;
+                }
+                selectNode(chosenNodes[depth]);
+                depth++;
+                backtracking = false;
+            }
+        }
+
+        private boolean isCandidate(boolean[] satisfiedColumns, int row, int column, int symbol) {
+            return !satisfiedColumns[cellColumn(row, column)]
+                    && !satisfiedColumns[rowSymbolColumn(row, symbol)]
+                    && !satisfiedColumns[columnSymbolColumn(column, symbol)];
+        }
+
+        private void addCandidate(int row, int column, int symbol) {
+            int candidate = (row * size + column) * size + symbol;
+            int first = nodesCount;
+            int[] headers = {
+                    cellColumn(row, column) + 1,
+                    rowSymbolColumn(row, symbol) + 1,
+                    columnSymbolColumn(column, symbol) + 1
+            };
+
+            for (int index = 0; index < headers.length; index++) {
+                int node = first + index;
+                int header = headers[index];
+
+                columns[node] = header;
+                candidates[node] = candidate;
+                up[node] = up[header];
+                down[node] = header;
+                down[up[header]] = node;
+                up[header] = node;
+                columnSizes[header]++;
+
+                left[node] = first + (index + headers.length - 1) % headers.length;
+                right[node] = first + (index + 1) % headers.length;
+            }
+            nodesCount += headers.length;
+        }
+
+        private int chooseColumn() {
+            int result = right[ROOT];
+            int minSize = columnSizes[result];
+            for (int header = right[result]; header != ROOT && minSize > 1; header = right[header]) {
+                if (columnSizes[header] < minSize) {
+                    result = header;
+                    minSize = columnSizes[header];
+                }
+            }
+            return result;
+        }
+
+        private void selectNode(int node) {
+            for (int other = right[node]; other != node; other = right[other]) {
+                cover(columns[other]);
+            }
+        }
+
+        private void deselectNode(int node) {
+            for (int other = left[node]; other != node; other = left[other]) {
+                uncover(columns[other]);
+            }
+        }
+
+        private void cover(int header) {
+            right[left[header]] = right[header];
+            left[right[header]] = left[header];
+            for (int row = down[header]; row != header; row = down[row]) {
+                for (int node = right[row]; node != row; node = right[node]) {
+                    down[up[node]] = down[node];
+                    up[down[node]] = up[node];
+                    columnSizes[columns[node]]--;
+                }
+            }
+        }
+
+        private void uncover(int header) {
+            for (int row = up[header]; row != header; row = up[row]) {
+                for (int node = left[row]; node != row; node = left[node]) {
+                    columnSizes[columns[node]]++;
+                    down[up[node]] = node;
+                    up[down[node]] = node;
+                }
+            }
+            right[left[header]] = header;
+            left[right[header]] = header;
+        }
+
+        private void writeSolution(int[] solution, int[] chosenNodes, int depth) {
+            for (int row = 0; row < size; row++) {
+                for (int column = 0; column < size; column++) {
+                    Integer value = square[row][column];
+                    solution[row * size + column] = value == null ? 0 : value;
+                }
+            }
+            for (int level = 0; level < depth; level++) {
+                int candidate = candidates[chosenNodes[level]];
+                solution[candidate / size] = candidate % size + 1;
+            }
+        }
+
+        private int cellColumn(int row, int column) {
+            return row * size + column;
+        }
+
+        private int rowSymbolColumn(int row, int symbol) {
+            return size * size + row * size + symbol;
+        }
+
+        private int columnSymbolColumn(int column, int symbol) {
+            return 2 * size * size + column * size + symbol;
+        }
+    }
+}
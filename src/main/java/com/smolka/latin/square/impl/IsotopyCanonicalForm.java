@@ -0,0 +1,270 @@
+package com.smolka.latin.square.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// color refinement with individualization; past MAX_LEAVES isotopic squares may get different forms
+public class IsotopyCanonicalForm {
+
+    private static final int MAX_LEAVES = 64;
+
+    private final int size;
+
+    private final int[] grid;
+
+    private final int[] rowPositions;
+
+    private final int[] columnPositions;
+
+    private final int[] symbolPositions;
+
+    private final int hashCode;
+
+    private IsotopyCanonicalForm(int size, int[] grid, int[] rowPositions, int[] columnPositions, int[] symbolPositions) {
+        this.size = size;
+        this.grid = grid;
+        this.rowPositions = rowPositions;
+        this.columnPositions = columnPositions;
+        this.symbolPositions = symbolPositions;
+        this.hashCode = 31 * size + Arrays.hashCode(grid);
+    }
+
+    public static IsotopyCanonicalForm of(Integer[][] square) {
+        return new Search(square).run();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // row-major canonical clue grid, 0 marks an empty cell
+    public int[] getGrid() {
+        return grid.clone();
+    }
+
+    // a completion of the square in canonical row-major order
+    public int[] toCanonical(Integer[][] completion) {
+        int[] result = new int[size * size];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                result[rowPositions[row] * size + columnPositions[column]] = symbolPositions[completion[row][column] - 1] + 1;
+            }
+        }
+        return result;
+    }
+
+    // maps a completion of the canonical grid back through the inverse permutations
+    public Integer[][] toOriginal(int[] canonicalCompletion) {
+        int[] symbols = new int[size];
+        for (int symbol = 0; symbol < size; symbol++) {
+            symbols[symbolPositions[symbol]] = symbol + 1;
+        }
+
+        Integer[][] result = new Integer[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                result[row][column] = symbols[canonicalCompletion[rowPositions[row] * size + columnPositions[column]] - 1];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        IsotopyCanonicalForm that = (IsotopyCanonicalForm) o;
+        return size == that.size && Arrays.equals(grid, that.grid);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    private static class Search {
+
+        private final int size;
+
+        private final int elementsCount;
+
+        private final int[] clues;
+
+        private final int[][] elementClues;
+
+        private int leavesCount;
+
+        private int[] bestGrid;
+
+        private int[] bestPositions;
+
+        public Search(Integer[][] square) {
+            this.size = square.length;
+            this.elementsCount = 3 * size;
+
+            List<Integer> clueElements = new ArrayList<>();
+            int[] degrees = new int[elementsCount];
+            for (int row = 0; row < size; row++) {
+                for (int column = 0; column < size; column++) {
+                    if (square[row][column] != null) {
+                        int[] clue = { row, size + column, 2 * size + square[row][column] - 1 };
+                        for (int element : clue) {
+                            clueElements.add(element);
+                            degrees[element]++;
+                        }
+                    }
+                }
+            }
+            this.clues = clueElements.stream().mapToInt(Integer::intValue).toArray();
+
+            this.elementClues = new int[elementsCount][];
+            for (int element = 0; element < elementsCount; element++) {
+                elementClues[element] = new int[degrees[element]];
+                degrees[element] = 0;
+            }
+            for (int index = 0; index < clues.length; index++) {
+                int element = clues[index];
+                elementClues[element][degrees[element]++] = index / 3;
+            }
+        }
+
+        public IsotopyCanonicalForm run() {
+            int[] colors = new int[elementsCount];
+            for (int element = 0; element < elementsCount; element++) {
+                colors[element] = element / size;
+            }
+            search(colors);
+
+            return new IsotopyCanonicalForm(size,
+                    bestGrid,
+                    Arrays.copyOfRange(bestPositions, 0, size),
+                    Arrays.copyOfRange(bestPositions, size, 2 * size),
+                    Arrays.copyOfRange(bestPositions, 2 * size, 3 * size));
+        }
+
+        private void search(int[] colors) {
+            int[] refinedColors = refine(colors);
+            int tiedColor = getFirstTiedColor(refinedColors);
+            if (tiedColor < 0) {
+                visitLeaf(refinedColors);
+                return;
+            }
+
+            for (int element = 0; element < elementsCount && leavesCount < MAX_LEAVES; element++) {
+                if (refinedColors[element] == tiedColor) {
+                    search(individualize(refinedColors, element));
+                }
+            }
+        }
+
+        // colors are ranks of signatures, so a refined coloring keeps the order of the classes it splits
+        private int[] refine(int[] colors) {
+            int classesCount = countClasses(colors);
+            while (true) {
+                long[][] signatures = new long[elementsCount][];
+                for (int element = 0; element < elementsCount; element++) {
+                    signatures[element] = getSignature(colors, element);
+                }
+
+                Integer[] order = new Integer[elementsCount];
+                for (int element = 0; element < elementsCount; element++) {
+                    order[element] = element;
+                }
+                Arrays.sort(order, (first, second) -> Arrays.compare(signatures[first], signatures[second]));
+
+                int[] refinedColors = new int[elementsCount];
+                int color = 0;
+                for (int index = 1; index < elementsCount; index++) {
+                    if (Arrays.compare(signatures[order[index - 1]], signatures[order[index]]) != 0) {
+                        color++;
+                    }
+                    refinedColors[order[index]] = color;
+                }
+
+                if (color + 1 == classesCount) {
+                    return refinedColors;
+                }
+                colors = refinedColors;
+                classesCount = color + 1;
+            }
+        }
+
+        // own color followed by the sorted colors of the two other elements of every clue of the element;
+        // individualized colors stay below 2 * elementsCount, so the pair codes do not collide
+        private long[] getSignature(int[] colors, int element) {
+            int[] elementClueIndices = elementClues[element];
+            long[] signature = new long[elementClueIndices.length + 1];
+            signature[0] = colors[element];
+            for (int index = 0; index < elementClueIndices.length; index++) {
+                int offset = 3 * elementClueIndices[index];
+                long code = 0;
+                for (int part = 0; part < 3; part++) {
+                    if (clues[offset + part] != element) {
+                        code = code * 2L * elementsCount + colors[clues[offset + part]];
+                    }
+                }
+                signature[index + 1] = code;
+            }
+            Arrays.sort(signature, 1, signature.length);
+            return signature;
+        }
+
+        private int getFirstTiedColor(int[] colors) {
+            int[] classSizes = new int[elementsCount];
+            for (int element = 0; element < elementsCount; element++) {
+                if (elementClues[element].length > 0) {
+                    classSizes[colors[element]]++;
+                }
+            }
+            for (int color = 0; color < elementsCount; color++) {
+                if (classSizes[color] > 1) {
+                    return color;
+                }
+            }
+            return -1;
+        }
+
+        private int[] individualize(int[] colors, int individualizedElement) {
+            int[] result = new int[elementsCount];
+            int individualizedColor = colors[individualizedElement];
+            for (int element = 0; element < elementsCount; element++) {
+                boolean isSplit = colors[element] == individualizedColor && element != individualizedElement;
+                result[element] = 2 * colors[element] + (isSplit ? 1 : 0);
+            }
+            return result;
+        }
+
+        private void visitLeaf(int[] colors) {
+            leavesCount++;
+
+            Integer[] order = new Integer[elementsCount];
+            for (int element = 0; element < elementsCount; element++) {
+                order[element] = element;
+            }
+            Arrays.sort(order, (first, second) -> colors[first] != colors[second]
+                    ? Integer.compare(colors[first], colors[second])
+                    : Integer.compare(first, second));
+
+            int[] positions = new int[elementsCount];
+            for (int index = 0; index < elementsCount; index++) {
+                positions[order[index]] = index % size;
+            }
+
+            int[] leafGrid = new int[size * size];
+            for (int offset = 0; offset < clues.length; offset += 3) {
+                int row = positions[clues[offset]];
+                int column = positions[clues[offset + 1]];
+                leafGrid[row * size + column] = positions[clues[offset + 2]] + 1;
+            }
+
+            if (bestGrid == null || Arrays.compare(leafGrid, bestGrid) < 0) {
+                bestGrid = leafGrid;
+                bestPositions = positions;
+            }
+        }
+
+        private int countClasses(int[] colors) {
+            return (int) Arrays.stream(colors).distinct().count();
+        }
+    }
+}
@@ -1,186 +1,524 @@
 package com.smolka.latin.square.impl;
 
 import com.smolka.latin.square.LatinSquare;
-import org.apache.commons.lang3.tuple.Pair;
-
+import com.smolka.latin.square.SolutionSink;
+import com.smolka.latin.square.SolveOptions;
+import com.smolka.latin.square.SolveResult;
+import com.smolka.latin.square.VariantsIterator;
+import jdk.jfr.EventType;
+
+import java.io.Serial;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class LatinSquareImpl implements LatinSquare {
 
+    private static final ConcurrentMap<Integer, Set<Integer>> ALL_ELEMENTS = new ConcurrentHashMap<>();
+
+    private static final BatchSquareValidator BATCH_SQUARE_VALIDATOR = BatchSquareValidator.create();
+
+    private static final EventType SOLVE_EVENT_TYPE = EventType.getEventType(SolveEvent.class);
+
+    private static final EventType SEARCH_LEVEL_EVENT_TYPE = EventType.getEventType(SearchLevelEvent.class);
+
+    private final SolverSettings settings;
+
+    private final SquareValidator squareValidator;
+
+    public LatinSquareImpl() {
+        this(SolverSettings.defaults());
+    }
+
+    public LatinSquareImpl(SolverSettings settings) {
+        this.settings = settings;
+        this.squareValidator = new SquareValidator();
+    }
+
     @Override
     public boolean check(Integer[][] square) {
-        Set<Integer> allElements = IntStream.range(1, square.length + 1).boxed().collect(Collectors.toSet());
+        return squareValidator.check(square);
+    }
 
-        if (isInvalid(square, allElements)) {
-            return false;
-        }
+    @Override
+    public boolean check(int[][] square) {
+        return squareValidator.check(square);
+    }
 
-        for (int row = 0; row < square.length; row++) {
-            Set<Integer> elements = getSetOfNotNullElementsByRow(row, square);
-            if (elements.size() != allElements.size()) {
-                return false;
-            }
-        }
+    // squares are stored one after another in row-major order, the result holds a flag per square
+    public boolean[] checkAll(int[] squares, int size) {
+        return BATCH_SQUARE_VALIDATOR.checkAll(squares, size);
+    }
+
+    @Override
+    public Integer[][] getFirstVariant(Integer[][] square) {
+        return solveFirstVariant(square, createBudget(SolveOptions.unlimited()));
+    }
+
+    @Override
+    public SolveResult getFirstVariant(Integer[][] square, SolveOptions options) {
+        SearchBudget budget = createBudget(options);
+        Integer[][] result = solveFirstVariant(square, budget);
+        return new SolveResult(result == null ? List.of() : List.<Integer[][]>of(result), budget.getStatus());
+    }
+
+    @Override
+    public List<Integer[][]> getVariantsWithLimit(Integer[][] square, int limit) {
+        return solveVariantsWithLimit(square, limit, createBudget(SolveOptions.unlimited()));
+    }
+
+    @Override
+    public SolveResult getVariantsWithLimit(Integer[][] square, int limit, SolveOptions options) {
+        SearchBudget budget = createBudget(options);
+        List<Integer[][]> result = solveVariantsWithLimit(square, limit, budget);
+        return new SolveResult(result, budget.getStatus());
+    }
 
-        for (int column = 0; column < square.length; column++) {
-            Set<Integer> elements = getSetOfNotNullElementsByColumn(column, square);
-            if (elements.size() != allElements.size()) {
-                return false;
+    @Override
+    public VariantsIterator iterateVariants(Integer[][] square) {
+        SelectionMatrix<Integer> selectionMatrix = createConsistentSelectionMatrix(square);
+
+        return new SearchVariantsIterator(callbackFunction -> visitingStep(square, selectionMatrix, (grid, size) -> {
+            int[][] variant = new int[size][];
+            for (int row = 0; row < size; row++) {
+                variant[row] = Arrays.copyOfRange(grid, row * size, (row + 1) * size);
             }
-        }
+            return !callbackFunction.apply(variant);
+        }));
+    }
 
-        return true;
+    @Override
+    public void visitVariants(Integer[][] square, SolutionSink sink) {
+        visitingStep(square, createConsistentSelectionMatrix(square), sink);
     }
 
     @Override
-    public Integer[][] getFirstVariant(Integer[][] square) {
-        Set<Integer> allElements = IntStream.range(1, square.length + 1).boxed().collect(Collectors.toSet());
-        if (isInvalid(square, allElements)) {
-            throw new RuntimeException("Square is invalid");
+    public long countCompletions(Integer[][] square, long limit) {
+        if (limit <= 0) {
+            return 0;
         }
 
-        SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(square, allElements, Integer.class);
-        Step step = findingStep(new Step(selectionMatrix, 1));
-        if (!step.isLast()) {
-            return null;
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        SearchBudget budget = createBudget(SolveOptions.unlimited());
+        SelectionMatrix<Integer> selectionMatrix = createConsistentSelectionMatrix(square);
+        if (selectionMatrix == null) {
+            commitSolveEvent(event, "count", square, budget, 0);
+            return 0;
         }
 
-        return step.getResult().getFirst();
+        long startNanos = System.nanoTime();
+        long count = Math.min(countingStep(selectionMatrix, limit, 0, budget), limit);
+        reportStatistics(selectionMatrix, startNanos);
+        commitSolveEvent(event, "count", square, budget, count);
+        return count;
     }
 
-    @Override
-    public List<Integer[][]> getVariantsWithLimit(Integer[][] square, int limit) {
-        Set<Integer> allElements = IntStream.range(1, square.length + 1).boxed().collect(Collectors.toSet());
-        if (isInvalid(square, allElements)) {
+    // symbols 1..n are indexed in natural order, so the value of a cell is its symbol index plus one
+    private void visitingStep(Integer[][] square, SelectionMatrix<Integer> selectionMatrix, SolutionSink sink) {
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        SearchBudget budget = createBudget(SolveOptions.unlimited());
+        if (selectionMatrix == null) {
+            commitSolveEvent(event, "visit", square, budget, 0);
+            return;
+        }
+
+        int size = selectionMatrix.getSize();
+        int[] grid = new int[size * size];
+        long startNanos = System.nanoTime();
+        Step step = findingStep(Step.visiting(selectionMatrix, matrix -> {
+            matrix.writeSymbolIndices(grid);
+            for (int cell = 0; cell < grid.length; cell++) {
+                grid[cell]++;
+            }
+            return !sink.accept(grid, size);
+        }, budget));
+        reportStatistics(selectionMatrix, startNanos);
+        commitSolveEvent(event, "visit", square, budget, step.getFoundCount());
+    }
+
+    private SelectionMatrix<Integer> createSelectionMatrix(Integer[][] square) {
+        if (squareValidator.isInvalid(square)) {
             throw new RuntimeException("Square is invalid");
         }
 
-        SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(square, allElements, Integer.class);
-        Step resultStep = findingStep(new Step(selectionMatrix, limit));
+        SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(square, getAllElements(square.length), Integer.class, settings.propagationMode());
+        attachNogoodStore(selectionMatrix);
+        attachStatistics(selectionMatrix);
+        return selectionMatrix;
+    }
 
-        return resultStep.getResult();
+    // the visiting and counting entry points report a square without completions as empty, like DLX does
+    private SelectionMatrix<Integer> createConsistentSelectionMatrix(Integer[][] square) {
+        if (squareValidator.isInvalid(square)) {
+            throw new RuntimeException("Square is invalid");
+        }
+
+        SelectionMatrix<Integer> selectionMatrix = SelectionMatrix.createIfConsistent(square, getAllElements(square.length), Integer.class, settings.propagationMode());
+        if (selectionMatrix != null) {
+            attachNogoodStore(selectionMatrix);
+            attachStatistics(selectionMatrix);
+        }
+        return selectionMatrix;
     }
 
-    private Step findingStep(Step step) {
-        if (step.isLast()) {
-            return step;
+    // nogoods only hold for the clues of one square, so every search starts with an empty store
+    private void attachNogoodStore(SelectionMatrix<Integer> selectionMatrix) {
+        if (settings.nogoodCapacity() > 0) {
+            selectionMatrix.setNogoodStore(new NogoodStore(settings.nogoodCapacity()));
         }
-        SelectionMatrix<Integer> currentSelectionMatrix = step.getCurrentMatrix();
+    }
 
-        Pair<Integer, List<SelectionMatrixElement<Integer>>> minRowPair = currentSelectionMatrix.getUnfilledRowAndIndexWithMinimumVariants();
-        Integer rowIndex = minRowPair.getKey();
-        List<SelectionMatrixElement<Integer>> row = minRowPair.getValue();
+    // statistics cover the search, the propagation of the clues in the constructor is not counted
+    private void attachStatistics(SelectionMatrix<Integer> selectionMatrix) {
+        if (settings.statisticsListener() != null) {
+            selectionMatrix.setStatistics(new SolverStatistics());
+        }
+    }
 
-        if (rowIndex == null) {
-            step.addToResult(currentSelectionMatrix);
-            return step;
+    private void reportStatistics(SelectionMatrix<Integer> selectionMatrix, long startNanos) {
+        SolverStatistics statistics = selectionMatrix.getStatistics();
+        if (statistics != null) {
+            statistics.setSearchNanos(System.nanoTime() - startNanos);
+            settings.statisticsListener().accept(statistics);
         }
+    }
 
-        Map<Integer, Set<Integer>> variantsMap = new HashMap<>();
-        for (int i = 0; i < row.size(); i++) {
-            SelectionMatrixElement<Integer> element = row.get(i);
-            variantsMap.put(i, element.getVariants());
+    // without a node budget nodes are only counted for a recording of the events that report them
+    private static SearchBudget createBudget(SolveOptions options) {
+        SearchBudget budget = SearchBudget.of(options);
+        return SOLVE_EVENT_TYPE.isEnabled() || SEARCH_LEVEL_EVENT_TYPE.isEnabled() ? budget.withNodeCounting() : budget;
+    }
+
+    private static void commitSolveEvent(SolveEvent event, String operation, Integer[][] square, SearchBudget budget, long variants) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.order = square.length;
+            event.clueCount = countClues(square);
+            event.nodes = budget.getNodes();
+            event.variants = variants;
+            event.outcome = budget.getStatus().name();
+            event.commit();
         }
+    }
 
-        VariantsFinder<Integer, Integer> variantsFinder = new VariantsFinder<>();
-        variantsFinder.findVariantsWithCallback(variantsMap, (newVariant) -> {
-            SelectionMatrix<Integer> copySelectionMatrix = currentSelectionMatrix.getCopy();
-            boolean validity = copySelectionMatrix.setRowToMatrixAndReturnValidity(rowIndex, newVariant);
-            if (!validity) {
-                return step.isLast();
+    private static int countClues(Integer[][] square) {
+        int count = 0;
+        for (Integer[] row : square) {
+            for (Integer value : row) {
+                if (value != null) {
+                    count++;
+                }
             }
+        }
+        return count;
+    }
 
-            Step newStep = step.newStep(copySelectionMatrix);
-            Step result = findingStep(newStep);
-            return result.isLast();
-        });
+    private static Set<Integer> getAllElements(int size) {
+        return ALL_ELEMENTS.computeIfAbsent(size, key -> IntStream.range(1, key + 1).boxed().collect(Collectors.toUnmodifiableSet()));
+    }
 
-        return step;
+    private Integer[][] solveFirstVariant(Integer[][] square, SearchBudget budget) {
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        SelectionMatrix<Integer> selectionMatrix = createSelectionMatrix(square);
+        long startNanos = System.nanoTime();
+        Integer[][] result = settings.portfolioSize() > 1
+                ? raceFirstVariant(selectionMatrix, budget)
+                : findFirstVariant(selectionMatrix, new AtomicBoolean(), budget);
+        reportStatistics(selectionMatrix, startNanos);
+        commitSolveEvent(event, "first", square, budget, result == null ? 0 : 1);
+        return result;
+    }
+
+    private List<Integer[][]> solveVariantsWithLimit(Integer[][] square, int limit, SearchBudget budget) {
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        SelectionMatrix<Integer> selectionMatrix = createSelectionMatrix(square);
+        long startNanos = System.nanoTime();
+        List<Integer[][]> result;
+        if (settings.parallelism() > 1) {
+            Step rootStep = Step.concurrent(selectionMatrix, limit, budget);
+            try (ForkJoinPool pool = new ForkJoinPool(settings.parallelism())) {
+                pool.invoke(new ParallelFindingTask(rootStep, 0));
+            }
+            result = new ArrayList<>(rootStep.getResult());
+        } else {
+            result = findingStep(new Step(selectionMatrix, limit, new AtomicBoolean(), budget)).getResult();
+        }
+        reportStatistics(selectionMatrix, startNanos);
+        commitSolveEvent(event, "limit", square, budget, result.size());
+        return result;
     }
 
-    private boolean isInvalid(Integer[][] square, Set<Integer> allElements) {
-        if (square.length == 0) {
-            return true;
+    private Integer[][] findFirstVariant(SelectionMatrix<Integer> selectionMatrix, AtomicBoolean stopped, SearchBudget budget) {
+        if (settings.restartPolicy().isEnabled()) {
+            return findFirstVariantWithRestarts(selectionMatrix, stopped, budget);
         }
 
-        for (Integer[] row : square) {
-            if (row.length != square.length) {
-                return true;
+        Step step = findingStep(new Step(selectionMatrix, 1, stopped, budget));
+        if (step.getResult().isEmpty()) {
+            return null;
+        }
+
+        return step.getResult().getFirst();
+    }
+
+    // a run that ends without a variant and without reaching its cutoff has proven that there is none;
+    // every run draws on the nodes and the time left in the budget of the whole solve
+    private Integer[][] findFirstVariantWithRestarts(SelectionMatrix<Integer> selectionMatrix, AtomicBoolean stopped, SearchBudget budget) {
+        RestartPolicy restartPolicy = settings.restartPolicy();
+        SolverStatistics statistics = selectionMatrix.getStatistics();
+        for (int run = 0; ; run++) {
+            SelectionMatrix<Integer> runSelectionMatrix = selectionMatrix.getCopy();
+            if (!restartPolicy.keepNogoods()) {
+                attachNogoodStore(runSelectionMatrix);
             }
-            for (Integer element : row) {
-                if (element == null) {
-                    continue;
-                }
-                if (!allElements.contains(element)) {
-                    return true;
-                }
+
+            BranchingStrategy runBranchingStrategy = settings.branchingStrategy().randomized(restartPolicy.seed() + run);
+            LatinSquareImpl runner = new LatinSquareImpl(settings.withBranchingStrategy(runBranchingStrategy).withRestartPolicy(RestartPolicy.none()));
+            SearchBudget runBudget = budget.forRun(restartPolicy.getCutoff(run));
+            Step step = runner.findingStep(new Step(runSelectionMatrix, 1, stopped, runBudget));
+            budget.finishRun(runBudget);
+
+            if (!step.getResult().isEmpty()) {
+                return step.getResult().getFirst();
+            }
+            if (!step.isCutOff() || budget.isExhausted()) {
+                return null;
+            }
+            if (statistics != null) {
+                statistics.countRestart();
             }
         }
+    }
 
-        for (int row = 0; row < square.length; row++) {
-            int count = getNotNullElementsCountByRow(row, square);
-            Set<Integer> notNullElementsSet = getSetOfNotNullElementsByRow(row, square);
-            if (count != notNullElementsSet.size()) {
-                return true;
-            }
+    // every finished member is an answer: either a variant or a proof that there is none,
+    // the others see the stop flag in findingStep and unwind
+    private Integer[][] raceFirstVariant(SelectionMatrix<Integer> selectionMatrix, SearchBudget budget) {
+        AtomicBoolean stopped = new AtomicBoolean();
+        List<Callable<Integer[][]>> members = new ArrayList<>();
+        for (int index = 0; index < settings.portfolioSize(); index++) {
+            LatinSquareImpl member = new LatinSquareImpl(settings.withBranchingStrategy(getPortfolioStrategy(index)).withPortfolioSize(1));
+            SelectionMatrix<Integer> memberSelectionMatrix = selectionMatrix.getCopy();
+            members.add(() -> {
+                member.attachNogoodStore(memberSelectionMatrix);
+                return member.findFirstVariant(memberSelectionMatrix, stopped, budget);
+            });
         }
 
-        for (int column = 0; column < square.length; column++) {
-            int count = getNotNullElementsCountByColumn(column, square);
-            Set<Integer> notNullElementsSet = getSetOfNotNullElementsByColumn(column, square);
-            if (count != notNullElementsSet.size()) {
-                return true;
+        // members never block, on virtual threads they would pin the carriers of the shared scheduler
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(members.size(), Runtime.getRuntime().availableProcessors()))) {
+            try {
+                return executor.invokeAny(members);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                stopped.set(true);
             }
         }
+    }
 
-        return false;
+    private BranchingStrategy getPortfolioStrategy(int index) {
+        return switch (index % 4) {
+            case 0 -> index == 0 ? settings.branchingStrategy() : BranchingStrategy.randomizedMinimumVariantsCell(index);
+            case 1 -> index == 1 ? BranchingStrategy.minimumVariantsCellWithDegree() : BranchingStrategy.randomizedMinimumVariantsCellWithDegree(index);
+            case 2 -> BranchingStrategy.randomizedRows(index);
+            default -> BranchingStrategy.randomizedMinimumVariantsCell(index);
+        };
     }
 
-    private int getNotNullElementsCountByColumn(int column, Integer[][] square) {
-        int counter = 0;
-        for (Integer[] element : square) {
-            if (element[column] != null) {
-                counter++;
+    // the budget only counts the nodes, counting has no limits besides the number of completions
+    private long countingStep(SelectionMatrix<Integer> currentSelectionMatrix, long limit, int depth, SearchBudget budget) {
+        budget.countNode();
+        SolverStatistics statistics = currentSelectionMatrix.getStatistics();
+        if (statistics != null) {
+            statistics.countNode(depth);
+        }
+
+        long twoRowsCount = currentSelectionMatrix.getTwoUnfilledRowsCompletionsCount();
+        if (twoRowsCount >= 0) {
+            return twoRowsCount;
+        }
+
+        Branch<Integer> branch = settings.branchingStrategy().select(currentSelectionMatrix);
+        if (branch == null) {
+            return 1;
+        }
+
+        boolean withTrail = settings.backtrackingMode() == BacktrackingMode.TRAIL;
+        long[] count = { 0 };
+        branch.forEachAlternative(alternative -> {
+            int checkpoint = withTrail ? currentSelectionMatrix.checkpoint() : 0;
+            SelectionMatrix<Integer> branchSelectionMatrix = withTrail ? currentSelectionMatrix : currentSelectionMatrix.getCopy();
+
+            if (alternative.applyAndReturnValidity(branchSelectionMatrix)) {
+                count[0] += countingStep(branchSelectionMatrix, limit - count[0], depth + 1, budget);
+            } else if (statistics != null) {
+                statistics.countBacktrack();
+            }
+
+            if (withTrail) {
+                currentSelectionMatrix.rollback(checkpoint);
             }
+            return count[0] >= limit;
+        });
+
+        if (count[0] == 0) {
+            currentSelectionMatrix.learnNogood();
         }
-        return counter;
+        return count[0];
     }
 
-    private int getNotNullElementsCountByRow(int row, Integer[][] square) {
-        int counter = 0;
-        for (int column = 0; column < square.length; column++) {
-            if (square[row][column] != null) {
-                counter++;
-            }
+    private Step findingStep(Step step) {
+        if (step.getDepth() >= SearchLevelEvent.SAMPLED_DEPTH) {
+            return branchingStep(step);
         }
-        return counter;
+
+        SearchLevelEvent event = new SearchLevelEvent();
+        event.begin();
+        long nodesBefore = step.getBudget().getNodes();
+        long foundBefore = step.getFoundCount();
+        branchingStep(step);
+        if (event.shouldCommit()) {
+            event.order = step.getCurrentMatrix().getSize();
+            event.depth = step.getDepth();
+            event.nodes = step.getBudget().getNodes() - nodesBefore;
+            event.variants = step.getFoundCount() - foundBefore;
+            event.outcome = step.isCutOff() ? step.getBudget().getStatus().name() : step.isLast() ? "STOPPED" : "EXHAUSTED";
+            event.commit();
+        }
+        return step;
     }
 
-    private Set<Integer> getSetOfNotNullElementsByColumn(int column, Integer[][] square) {
-        Set<Integer> result = new HashSet<>();
-        for (Integer[] element : square) {
-            if (element[column] != null) {
-                result.add(element[column]);
+    private Step branchingStep(Step step) {
+        if (step.isLast()) {
+            return step;
+        }
+        step.getBudget().countNode();
+        SelectionMatrix<Integer> currentSelectionMatrix = step.getCurrentMatrix();
+        SolverStatistics statistics = currentSelectionMatrix.getStatistics();
+        if (statistics != null) {
+            statistics.countNode(step.getDepth());
+        }
+
+        Branch<Integer> branch = settings.branchingStrategy().select(currentSelectionMatrix);
+        if (branch == null) {
+            step.addToResult(currentSelectionMatrix);
+            return step;
+        }
+
+        boolean withTrail = settings.backtrackingMode() == BacktrackingMode.TRAIL;
+        long foundBefore = step.getFoundCount();
+        branch.forEachAlternative(alternative -> {
+            int checkpoint = withTrail ? currentSelectionMatrix.checkpoint() : 0;
+            SelectionMatrix<Integer> branchSelectionMatrix = withTrail ? currentSelectionMatrix : currentSelectionMatrix.getCopy();
+
+            boolean isLast;
+            if (alternative.applyAndReturnValidity(branchSelectionMatrix)) {
+                isLast = findingStep(step.newStep(branchSelectionMatrix)).isLast();
+            } else {
+                if (statistics != null) {
+                    statistics.countBacktrack();
+                }
+                isLast = step.isLast();
+            }
+
+            if (withTrail) {
+                currentSelectionMatrix.rollback(checkpoint);
             }
+            return isLast;
+        }, step::isLast);
+
+        // the counter only grows, so an unchanged one proves that no other thread found anything either
+        if (!step.isLast() && step.getFoundCount() == foundBefore) {
+            currentSelectionMatrix.learnNogood();
         }
-        return result;
+        return step;
     }
 
-    private Set<Integer> getSetOfNotNullElementsByRow(int row, Integer[][] square) {
-        Set<Integer> result = new HashSet<>();
-        for (int column = 0; column < square.length; column++) {
-            if (square[row][column] != null) {
-                result.add(square[row][column]);
+    // the first parallelSplitDepth levels fork every valid branch on its own matrix copy, deeper levels
+    // run the sequential search; at most 2 * parallelism forked branches per task wait for a worker,
+    // so wide row branchings do not materialize all their copies at once
+    private class ParallelFindingTask extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Step step;
+
+        private final int depth;
+
+        public ParallelFindingTask(Step step, int depth) {
+            this.step = step;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (step.isLast()) {
+                return;
             }
+            attachNogoodStore(step.getCurrentMatrix());
+            if (depth >= settings.parallelSplitDepth()) {
+                findingStep(step);
+                return;
+            }
+
+            step.getBudget().countNode();
+            SelectionMatrix<Integer> currentSelectionMatrix = step.getCurrentMatrix();
+            SolverStatistics statistics = currentSelectionMatrix.getStatistics();
+            if (statistics != null) {
+                statistics.countNode(step.getDepth());
+            }
+            Branch<Integer> branch = settings.branchingStrategy().select(currentSelectionMatrix);
+            if (branch == null) {
+                step.addToResult(currentSelectionMatrix);
+                return;
+            }
+
+            int maxPendingTasks = 2 * getPool().getParallelism();
+            Deque<ParallelFindingTask> pendingTasks = new ArrayDeque<>();
+            branch.forEachAlternative(alternative -> {
+                SelectionMatrix<Integer> branchSelectionMatrix = currentSelectionMatrix.getCopy();
+                if (alternative.applyAndReturnValidity(branchSelectionMatrix)) {
+                    ParallelFindingTask task = new ParallelFindingTask(step.newStep(branchSelectionMatrix), depth + 1);
+                    task.fork();
+                    pendingTasks.addLast(task);
+                    if (pendingTasks.size() > maxPendingTasks) {
+                        pendingTasks.pollFirst().join();
+                    }
+                } else if (statistics != null) {
+                    statistics.countBacktrack();
+                }
+                return step.isLast();
+            });
+
+            pendingTasks.forEach(ForkJoinTask::join);
         }
-        return result;
     }
 
     private static class Step {
@@ -189,30 +527,90 @@ public class LatinSquareImpl implements LatinSquare {
 
         private final int limit;
 
+        private final AtomicInteger reserved;
+
+        private final AtomicLong found;
+
         private final List<Integer[][]> result;
 
-        public Step(SelectionMatrix<Integer> currentSelectionMatrix, int limit) {
-            this.currentSelectionMatrix = currentSelectionMatrix;
-            this.limit = limit;
-            this.result = new ArrayList<>();
+        private final AtomicBoolean stopped;
+
+        private final Function<SelectionMatrix<Integer>, Boolean> visitor;
+
+        private final SearchBudget budget;
+
+        private final int depth;
+
+        // the search gives up once the budget is exhausted
+        public Step(SelectionMatrix<Integer> currentSelectionMatrix, int limit, AtomicBoolean stopped, SearchBudget budget) {
+            this(currentSelectionMatrix, limit, new AtomicInteger(), new AtomicLong(), new ArrayList<>(), stopped, null, budget, 0);
         }
 
-        private Step(SelectionMatrix<Integer> currentSelectionMatrix, int limit, List<Integer[][]> result) {
+        private Step(SelectionMatrix<Integer> currentSelectionMatrix,
+                     int limit,
+                     AtomicInteger reserved,
+                     AtomicLong found,
+                     List<Integer[][]> result,
+                     AtomicBoolean stopped,
+                     Function<SelectionMatrix<Integer>, Boolean> visitor,
+                     SearchBudget budget,
+                     int depth) {
             this.currentSelectionMatrix = currentSelectionMatrix;
             this.limit = limit;
+            this.reserved = reserved;
+            this.found = found;
             this.result = result;
+            this.stopped = stopped;
+            this.visitor = visitor;
+            this.budget = budget;
+            this.depth = depth;
         }
 
+        public static Step concurrent(SelectionMatrix<Integer> currentSelectionMatrix, int limit, SearchBudget budget) {
+            return new Step(currentSelectionMatrix, limit, new AtomicInteger(), new AtomicLong(), Collections.synchronizedList(new ArrayList<>()), new AtomicBoolean(), null, budget, 0);
+        }
+
+        // filled matrices go to the visitor instead of the result, the visitor returns true to stop the search
+        public static Step visiting(SelectionMatrix<Integer> currentSelectionMatrix, Function<SelectionMatrix<Integer>, Boolean> visitor, SearchBudget budget) {
+            return new Step(currentSelectionMatrix, Integer.MAX_VALUE, new AtomicInteger(), new AtomicLong(), List.of(), new AtomicBoolean(), visitor, budget, 0);
+        }
+
+        // a slot is reserved before the variant is materialized, so concurrent workers never exceed the limit
         public void addToResult(SelectionMatrix<Integer> selectionMatrix) {
-            result.add(selectionMatrix.toArray());
+            found.incrementAndGet();
+            if (visitor != null) {
+                if (visitor.apply(selectionMatrix)) {
+                    stopped.set(true);
+                }
+                return;
+            }
+            if (reserved.getAndUpdate(count -> count < limit ? count + 1 : count) < limit) {
+                result.add(selectionMatrix.toArray());
+            }
         }
 
         public Step newStep(SelectionMatrix<Integer> newSelectionMatrix) {
-            return new Step(newSelectionMatrix, limit, result);
+            return new Step(newSelectionMatrix, limit, reserved, found, result, stopped, visitor, budget, depth + 1);
         }
 
         public boolean isLast() {
-            return result.size() >= limit;
+            return reserved.get() >= limit || stopped.get() || budget.isExhausted();
+        }
+
+        public boolean isCutOff() {
+            return budget.isExhausted();
+        }
+
+        public SearchBudget getBudget() {
+            return budget;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getFoundCount() {
+            return found.get();
         }
 
         public SelectionMatrix<Integer> getCurrentMatrix() {
@@ -0,0 +1,113 @@
+package com.smolka.latin.square.impl;
+
+public class LongVariantsDomain implements VariantsDomain {
+
+    public static final int CAPACITY = Long.SIZE;
+
+    private long bits;
+
+    public LongVariantsDomain() {
+        this.bits = 0L;
+    }
+
+    public LongVariantsDomain(long bits) {
+        this.bits = bits;
+    }
+
+    public long getBits() {
+        return bits;
+    }
+
+    @Override
+    public int size() {
+        return Long.bitCount(bits);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bits == 0L;
+    }
+
+    @Override
+    public boolean contains(int index) {
+        return (bits & (1L << index)) != 0L;
+    }
+
+    @Override
+    public void add(int index) {
+        bits |= 1L << index;
+    }
+
+    @Override
+    public boolean remove(int index) {
+        long old = bits;
+        bits &= ~(1L << index);
+        return old != bits;
+    }
+
+    @Override
+    public boolean removeAll(VariantsDomain other) {
+        long old = bits;
+        if (other instanceof LongVariantsDomain longOther) {
+            bits &= ~longOther.bits;
+        } else {
+            for (int index = other.first(); index >= 0 && index < CAPACITY; index = other.next(index + 1)) {
+                bits &= ~(1L << index);
+            }
+        }
+        return old != bits;
+    }
+
+    @Override
+    public void reset(int index) {
+        bits = 1L << index;
+    }
+
+    @Override
+    public void reset(VariantsDomain other) {
+        if (other instanceof LongVariantsDomain longOther) {
+            bits = longOther.bits;
+            return;
+        }
+        bits = 0L;
+        for (int index = other.first(); index >= 0; index = other.next(index + 1)) {
+            add(index);
+        }
+    }
+
+    @Override
+    public int first() {
+        return bits == 0L ? -1 : Long.numberOfTrailingZeros(bits);
+    }
+
+    @Override
+    public int next(int fromIndex) {
+        if (fromIndex >= CAPACITY) {
+            return -1;
+        }
+        long rest = bits & (-1L << fromIndex);
+        return rest == 0L ? -1 : Long.numberOfTrailingZeros(rest);
+    }
+
+    @Override
+    public LongVariantsDomain copy() {
+        return new LongVariantsDomain(bits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        LongVariantsDomain that = (LongVariantsDomain) o;
+        return bits == that.bits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(bits);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toBinaryString(bits);
+    }
+}
@@ -0,0 +1,171 @@
+package com.smolka.latin.square.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// a nogood is a set of literals (cell * symbolsCount + symbolIndex) that no completion satisfies together;
+// nogoods are indexed by every literal, so a decision only looks at the nogoods sharing one of its literals.
+// The store is bounded and keeps nogoods in access order, the least recently learned or matched is evicted first
+public class NogoodStore {
+
+    private final int capacity;
+
+    private final LinkedHashMap<Nogood, Nogood> nogoods;
+
+    private final Map<Integer, List<Nogood>> nogoodsByLiteral;
+
+    private int checkStamp;
+
+    private long learnedCount;
+
+    private long hitsCount;
+
+    private long evictionsCount;
+
+    public NogoodStore(int capacity) {
+        if (capacity < 1) {
+            throw new RuntimeException("Nogood capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.nogoods = new LinkedHashMap<>(16, 0.75f, true);
+        this.nogoodsByLiteral = new HashMap<>();
+        this.checkStamp = 0;
+        this.learnedCount = 0;
+        this.hitsCount = 0;
+        this.evictionsCount = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSize() {
+        return nogoods.size();
+    }
+
+    public long getLearnedCount() {
+        return learnedCount;
+    }
+
+    public long getHitsCount() {
+        return hitsCount;
+    }
+
+    public long getEvictionsCount() {
+        return evictionsCount;
+    }
+
+    public void add(int[] literals, int length) {
+        if (length == 0) {
+            return;
+        }
+
+        int[] sortedLiterals = Arrays.copyOf(literals, length);
+        Arrays.sort(sortedLiterals);
+        Nogood nogood = new Nogood(sortedLiterals);
+        if (nogoods.get(nogood) != null) {
+            return;
+        }
+
+        nogoods.put(nogood, nogood);
+        int previousLiteral = -1;
+        for (int literal : sortedLiterals) {
+            if (literal != previousLiteral) {
+                nogoodsByLiteral.computeIfAbsent(literal, key -> new ArrayList<>()).add(nogood);
+                previousLiteral = literal;
+            }
+        }
+        learnedCount++;
+
+        if (nogoods.size() > capacity) {
+            Iterator<Nogood> eldest = nogoods.keySet().iterator();
+            evict(eldest.next());
+            eldest.remove();
+            evictionsCount++;
+        }
+    }
+
+    // only nogoods containing one of the literals [from, to) are checked, the others were checked before
+    // these literals became true
+    public boolean isViolated(SelectionMatrix<?> selectionMatrix, int[] literals, int from, int to) {
+        checkStamp++;
+        for (int index = from; index < to; index++) {
+            List<Nogood> candidates = nogoodsByLiteral.get(literals[index]);
+            if (candidates == null) {
+                continue;
+            }
+
+            for (Nogood candidate : candidates) {
+                if (candidate.checkStamp == checkStamp) {
+                    continue;
+                }
+                candidate.checkStamp = checkStamp;
+
+                if (isSatisfied(selectionMatrix, candidate)) {
+                    nogoods.get(candidate);
+                    hitsCount++;
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isSatisfied(SelectionMatrix<?> selectionMatrix, Nogood nogood) {
+        for (int literal : nogood.literals) {
+            if (!selectionMatrix.isLiteralSet(literal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void evict(Nogood nogood) {
+        int previousLiteral = -1;
+        for (int literal : nogood.literals) {
+            if (literal == previousLiteral) {
+                continue;
+            }
+            previousLiteral = literal;
+
+            List<Nogood> literalNogoods = nogoodsByLiteral.get(literal);
+            literalNogoods.remove(nogood);
+            if (literalNogoods.isEmpty()) {
+                nogoodsByLiteral.remove(literal);
+            }
+        }
+    }
+
+    private static final class Nogood {
+
+        private final int[] literals;
+
+        private final int hashCode;
+
+        private int checkStamp;
+
+        public Nogood(int[] literals) {
+            this.literals = literals;
+            this.hashCode = Arrays.hashCode(literals);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || getClass() != o.getClass()) return false;
+            Nogood that = (Nogood) o;
+            return Arrays.equals(literals, that.literals);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.smolka.latin.square.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// one run of the propagation queue to its fixpoint; it happens on every decision, so only the runs
+// longer than the threshold are recorded unless a recording lowers it
+@Name("com.smolka.latin.square.Propagation")
+@Label("Latin Square Propagation")
+@Category({ "Latin Square" })
+@Description("Propagation of one decision to the fixpoint")
+@StackTrace(false)
+@Threshold("1 ms")
+public class PropagationEvent extends jdk.jfr.Event {
+
+    @Label("Order")
+    int order;
+
+    @Label("Rounds")
+    int rounds;
+
+    @Label("Valid")
+    boolean valid;
+}
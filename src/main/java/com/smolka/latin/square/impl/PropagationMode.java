@@ -0,0 +1,15 @@
+package com.smolka.latin.square.impl;
+
+public enum PropagationMode {
+    SUB_SEGMENTS,
+    ALL_DIFFERENT,
+    SUB_SEGMENTS_AND_ALL_DIFFERENT;
+
+    public boolean withSubSegments() {
+        return this != ALL_DIFFERENT;
+    }
+
+    public boolean withAllDifferent() {
+        return this != SUB_SEGMENTS;
+    }
+}
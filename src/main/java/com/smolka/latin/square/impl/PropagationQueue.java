@@ -0,0 +1,123 @@
+package com.smolka.latin.square.impl;
+
+import java.util.Arrays;
+
+public class PropagationQueue {
+
+    private static final int NONE = -1;
+
+    private static final byte NOT_QUEUED = 0;
+
+    private static final byte QUEUED = 1;
+
+    private static final byte QUEUED_WITH_PRIORITY = 2;
+
+    private final byte[] states;
+
+    private final int[] next;
+
+    private final int[] previous;
+
+    private int head;
+
+    private int tail;
+
+    private int priorityHead;
+
+    private int priorityTail;
+
+    public PropagationQueue(int capacity) {
+        this.states = new byte[capacity];
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.head = NONE;
+        this.tail = NONE;
+        this.priorityHead = NONE;
+        this.priorityTail = NONE;
+    }
+
+    public void schedule(int segment, boolean withPriority) {
+        byte state = states[segment];
+        if (state == QUEUED_WITH_PRIORITY || (state == QUEUED && !withPriority)) {
+            return;
+        }
+
+        if (state == QUEUED) {
+            unlink(segment);
+        }
+
+        next[segment] = NONE;
+        if (withPriority) {
+            previous[segment] = priorityTail;
+            if (priorityTail == NONE) {
+                priorityHead = segment;
+            } else {
+                next[priorityTail] = segment;
+            }
+            priorityTail = segment;
+            states[segment] = QUEUED_WITH_PRIORITY;
+        } else {
+            previous[segment] = tail;
+            if (tail == NONE) {
+                head = segment;
+            } else {
+                next[tail] = segment;
+            }
+            tail = segment;
+            states[segment] = QUEUED;
+        }
+    }
+
+    public int poll() {
+        int segment;
+        if (priorityHead != NONE) {
+            segment = priorityHead;
+            priorityHead = next[segment];
+            if (priorityHead == NONE) {
+                priorityTail = NONE;
+            } else {
+                previous[priorityHead] = NONE;
+            }
+        } else if (head != NONE) {
+            segment = head;
+            head = next[segment];
+            if (head == NONE) {
+                tail = NONE;
+            } else {
+                previous[head] = NONE;
+            }
+        } else {
+            return NONE;
+        }
+
+        states[segment] = NOT_QUEUED;
+        return segment;
+    }
+
+    public boolean isEmpty() {
+        return priorityHead == NONE && head == NONE;
+    }
+
+    public void clear() {
+        Arrays.fill(states, NOT_QUEUED);
+        head = NONE;
+        tail = NONE;
+        priorityHead = NONE;
+        priorityTail = NONE;
+    }
+
+    private void unlink(int segment) {
+        int previousSegment = previous[segment];
+        int nextSegment = next[segment];
+        if (previousSegment == NONE) {
+            head = nextSegment;
+        } else {
+            next[previousSegment] = nextSegment;
+        }
+        if (nextSegment == NONE) {
+            tail = previousSegment;
+        } else {
+            previous[nextSegment] = previousSegment;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.smolka.latin.square.impl;
+
+// every run of getFirstVariant starts from the clues with the branching strategy randomized by seed + run
+// and gives up after getCutoff(run) search nodes; nogoods learned by a run are kept for the next ones
+// only with keepNogoods, otherwise every run starts with an empty store
+public record RestartPolicy(
+        RestartSchedule schedule,
+        long baseNodes,
+        double growthFactor,
+        long seed,
+        boolean keepNogoods
+) {
+
+    public RestartPolicy {
+        if (baseNodes < 1) {
+            throw new RuntimeException("Restart base nodes must be positive");
+        }
+        if (schedule == RestartSchedule.GEOMETRIC && !(growthFactor > 1.0)) {
+            throw new RuntimeException("Restart growth factor must be greater than 1");
+        }
+    }
+
+    public static RestartPolicy none() {
+        return new RestartPolicy(RestartSchedule.NONE, 1, 1.0, 0, false);
+    }
+
+    public static RestartPolicy luby(long baseNodes, long seed) {
+        return new RestartPolicy(RestartSchedule.LUBY, baseNodes, 1.0, seed, false);
+    }
+
+    public static RestartPolicy geometric(long baseNodes, double growthFactor, long seed) {
+        return new RestartPolicy(RestartSchedule.GEOMETRIC, baseNodes, growthFactor, seed, false);
+    }
+
+    public RestartPolicy withKeepNogoods(boolean keepNogoods) {
+        return new RestartPolicy(schedule, baseNodes, growthFactor, seed, keepNogoods);
+    }
+
+    public boolean isEnabled() {
+        return schedule != RestartSchedule.NONE;
+    }
+
+    public long getCutoff(int run) {
+        double cutoff = schedule.getUnits(run, growthFactor) * baseNodes;
+        return cutoff >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) cutoff;
+    }
+}
@@ -0,0 +1,28 @@
+package com.smolka.latin.square.impl;
+
+public enum RestartSchedule {
+    NONE,
+    LUBY,
+    GEOMETRIC;
+
+    // cutoff of the run with the given index in units of the base node count, run 0 is the first one
+    public double getUnits(int run, double growthFactor) {
+        return switch (this) {
+            case NONE -> Double.POSITIVE_INFINITY;
+            case LUBY -> getLubyValue(run + 1L);
+            case GEOMETRIC -> Math.pow(growthFactor, run);
+        };
+    }
+
+    // 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ...: the sequence ends with 2^(k-1) at index 2^k - 1
+    // and repeats itself before that
+    private static long getLubyValue(long index) {
+        while (true) {
+            int bits = Long.SIZE - Long.numberOfLeadingZeros(index);
+            if (index == (1L << bits) - 1) {
+                return 1L << (bits - 1);
+            }
+            index -= (1L << (bits - 1)) - 1;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.smolka.latin.square.impl;
+
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+public class RowBranchingStrategy implements BranchingStrategy {
+
+    private final Random random;
+
+    public RowBranchingStrategy() {
+        this(null);
+    }
+
+    // with a random ties between rows are broken uniformly and the variants of every cell of the row are tried in shuffled order
+    public RowBranchingStrategy(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public <T> Branch<T> select(SelectionMatrix<T> selectionMatrix) {
+        int rowIndex = random == null ? selectionMatrix.getUnfilledRowWithMinimumVariants() : getRandomRowWithMinimumVariants(selectionMatrix);
+        if (rowIndex < 0) {
+            return null;
+        }
+
+        int[][] rowVariants = getRowVariants(selectionMatrix, rowIndex);
+
+        return new Branch<>() {
+
+            @Override
+            public void forEachAlternative(Function<BranchAlternative<T>, Boolean> callbackFunction) {
+                forEachAlternative(callbackFunction, null);
+            }
+
+            @Override
+            public void forEachAlternative(Function<BranchAlternative<T>, Boolean> callbackFunction, BooleanSupplier stopCondition) {
+                RowVariantsSearch<T> search = new RowVariantsSearch<>(rowIndex, rowVariants, selectionMatrix.getSymbolsCount(), selectionMatrix.getStatistics(), callbackFunction, stopCondition);
+                search.run(0);
+            }
+        };
+    }
+
+    @Override
+    public BranchingStrategy randomized(long seed) {
+        return new RowBranchingStrategy(new Random(seed));
+    }
+
+    // same average variants size as SelectionMatrix uses, every row with the minimum is equally likely
+    private int getRandomRowWithMinimumVariants(SelectionMatrix<?> selectionMatrix) {
+        int size = selectionMatrix.getSize();
+        int resultIndex = -1;
+        int min = Integer.MAX_VALUE;
+        int tiesCount = 0;
+
+        for (int rowIndex = selectionMatrix.nextUnfilledRow(0); rowIndex >= 0; rowIndex = selectionMatrix.nextUnfilledRow(rowIndex + 1)) {
+            int allVariantsSize = 0;
+            for (int column = 0; column < size; column++) {
+                allVariantsSize += selectionMatrix.getVariantsSize(rowIndex, column);
+            }
+
+            int avgSize = allVariantsSize / size;
+            if (avgSize < min) {
+                resultIndex = rowIndex;
+                min = avgSize;
+                tiesCount = 1;
+            } else if (avgSize == min && random.nextInt(++tiesCount) == 0) {
+                resultIndex = rowIndex;
+            }
+        }
+
+        return resultIndex;
+    }
+
+    // symbol indices of the candidates of every cell of the row, read from the domain words
+    private int[][] getRowVariants(SelectionMatrix<?> selectionMatrix, int rowIndex) {
+        int size = selectionMatrix.getSize();
+        int[][] result = new int[size][];
+        for (int column = 0; column < size; column++) {
+            int[] variants = new int[selectionMatrix.getVariantsSize(rowIndex, column)];
+            int count = 0;
+            for (int symbolIndex = selectionMatrix.nextVariant(rowIndex, column, 0); symbolIndex >= 0; symbolIndex = selectionMatrix.nextVariant(rowIndex, column, symbolIndex + 1)) {
+                variants[count++] = symbolIndex;
+            }
+            if (random != null) {
+                shuffle(variants);
+            }
+            result[column] = variants;
+        }
+        return result;
+    }
+
+    private void shuffle(int[] variants) {
+        for (int index = variants.length - 1; index > 0; index--) {
+            int otherIndex = random.nextInt(index + 1);
+            int variant = variants[index];
+            variants[index] = variants[otherIndex];
+            variants[otherIndex] = variant;
+        }
+    }
+
+    // cartesian product of the cell variants without repeated symbols, a branch is cut as soon as
+    // some later cell has only used symbols left
+    private static class RowVariantsSearch<T> {
+
+        private final int rowIndex;
+
+        private final int[][] rowVariants;
+
+        private final VariantsDomain usedSymbols;
+
+        private final int[] current;
+
+        private final SolverStatistics statistics;
+
+        private final Function<BranchAlternative<T>, Boolean> callbackFunction;
+
+        private final BooleanSupplier stopCondition;
+
+        public RowVariantsSearch(int rowIndex,
+                                 int[][] rowVariants,
+                                 int symbolsCount,
+                                 SolverStatistics statistics,
+                                 Function<BranchAlternative<T>, Boolean> callbackFunction,
+                                 BooleanSupplier stopCondition) {
+            this.rowIndex = rowIndex;
+            this.rowVariants = rowVariants;
+            this.usedSymbols = VariantsDomain.empty(symbolsCount);
+            this.current = new int[rowVariants.length];
+            this.statistics = statistics;
+            this.callbackFunction = callbackFunction;
+            this.stopCondition = stopCondition;
+        }
+
+        public boolean run(int column) {
+            if (stopCondition != null && stopCondition.getAsBoolean()) {
+                return true;
+            }
+            if (column == rowVariants.length) {
+                if (statistics != null) {
+                    statistics.countRowCandidate();
+                }
+                int[] row = current.clone();
+                return callbackFunction.apply(matrix -> matrix.setRowToMatrixAndReturnValidity(rowIndex, row));
+            }
+
+            for (int otherColumn = column + 1; otherColumn < rowVariants.length; otherColumn++) {
+                if (allUsed(rowVariants[otherColumn])) {
+                    return false;
+                }
+            }
+
+            for (int symbolIndex : rowVariants[column]) {
+                if (usedSymbols.contains(symbolIndex)) {
+                    continue;
+                }
+                usedSymbols.add(symbolIndex);
+                current[column] = symbolIndex;
+                boolean stopped = run(column + 1);
+                usedSymbols.remove(symbolIndex);
+                if (stopped) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private boolean allUsed(int[] variants) {
+            for (int symbolIndex : variants) {
+                if (!usedSymbols.contains(symbolIndex)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
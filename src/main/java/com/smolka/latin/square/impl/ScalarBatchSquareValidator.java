@@ -0,0 +1,54 @@
+package com.smolka.latin.square.impl;
+
+import java.util.Arrays;
+
+public class ScalarBatchSquareValidator implements BatchSquareValidator {
+
+    @Override
+    public boolean[] checkAll(int[] squares, int size) {
+        int count = getSquaresCount(squares, size);
+        boolean[] result = new boolean[count];
+
+        int wordsPerMask = (size + Long.SIZE - 1) / Long.SIZE;
+        long[] rowMask = new long[wordsPerMask];
+        long[] columnMasks = new long[size * wordsPerMask];
+        for (int square = 0; square < count; square++) {
+            result[square] = check(squares, square * size * size, size, rowMask, columnMasks);
+        }
+        return result;
+    }
+
+    static int getSquaresCount(int[] squares, int size) {
+        if (size <= 0 || squares.length % (size * size) != 0) {
+            throw new RuntimeException("Buffer does not hold whole squares of size %s".formatted(size));
+        }
+        return squares.length / (size * size);
+    }
+
+    // values in range and one of each per row and per column means every line is a permutation
+    private boolean check(int[] squares, int offset, int size, long[] rowMask, long[] columnMasks) {
+        int wordsPerMask = rowMask.length;
+        Arrays.fill(columnMasks, 0L);
+
+        for (int row = 0; row < size; row++) {
+            Arrays.fill(rowMask, 0L);
+            int rowOffset = offset + row * size;
+            for (int column = 0; column < size; column++) {
+                int value = squares[rowOffset + column];
+                if (value < 1 || value > size) {
+                    return false;
+                }
+
+                int word = (value - 1) >>> 6;
+                long bit = 1L << (value - 1);
+                if ((rowMask[word] & bit) != 0L || (columnMasks[column * wordsPerMask + word] & bit) != 0L) {
+                    return false;
+                }
+                rowMask[word] |= bit;
+                columnMasks[column * wordsPerMask + word] |= bit;
+            }
+        }
+
+        return true;
+    }
+}
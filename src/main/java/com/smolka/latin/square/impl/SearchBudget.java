@@ -0,0 +1,119 @@
+package com.smolka.latin.square.impl;
+
+import com.smolka.latin.square.CancellationToken;
+import com.smolka.latin.square.SolveOptions;
+import com.smolka.latin.square.SolveStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// shared by every thread of one solve, the clock is read on every CLOCK_CHECK_INTERVAL-th check only
+public class SearchBudget {
+
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+
+    private final long nodeBudget;
+
+    private final long deadlineNanos;
+
+    private final boolean withDeadline;
+
+    private final CancellationToken cancellationToken;
+
+    private final boolean countingNodes;
+
+    private final AtomicLong nodes;
+
+    private volatile SolveStatus status;
+
+    // racy on purpose, starts one short of the interval so the first check reads the clock
+    private int checksCount;
+
+    private SearchBudget(long nodeBudget, long deadlineNanos, boolean withDeadline, CancellationToken cancellationToken, boolean countingNodes) {
+        this.nodeBudget = nodeBudget;
+        this.deadlineNanos = deadlineNanos;
+        this.withDeadline = withDeadline;
+        this.cancellationToken = cancellationToken;
+        this.countingNodes = countingNodes || nodeBudget != Long.MAX_VALUE;
+        this.nodes = new AtomicLong();
+        this.status = null;
+        this.checksCount = CLOCK_CHECK_INTERVAL - 1;
+    }
+
+    public static SearchBudget unlimited() {
+        return new SearchBudget(Long.MAX_VALUE, 0, false, null, false);
+    }
+
+    // the deadline is turned into System.nanoTime() terms once, so the search never reads the wall clock
+    public static SearchBudget of(SolveOptions options) {
+        if (options.deadline() == null) {
+            return new SearchBudget(options.nodeBudget(), 0, false, options.cancellationToken(), false);
+        }
+
+        long remainingNanos = saturatedNanos(Duration.between(Instant.now(), options.deadline()));
+        return new SearchBudget(options.nodeBudget(), System.nanoTime() + remainingNanos, true, options.cancellationToken(), false);
+    }
+
+    // without a node budget nodes are only counted on request
+    public SearchBudget withNodeCounting() {
+        return new SearchBudget(nodeBudget, deadlineNanos, withDeadline, cancellationToken, true);
+    }
+
+    // the budget of one restart run: runNodes on top of the nodes and the deadline left in this budget
+    public SearchBudget forRun(long runNodes) {
+        long remainingNodes = Math.max(0, nodeBudget - nodes.get());
+        return new SearchBudget(Math.min(runNodes, remainingNodes), deadlineNanos, withDeadline, cancellationToken, countingNodes);
+    }
+
+    public void finishRun(SearchBudget runBudget) {
+        long totalNodes = nodes.addAndGet(runBudget.nodes.get());
+        SolveStatus runStatus = runBudget.status;
+        if (runStatus == SolveStatus.DEADLINE_EXCEEDED || runStatus == SolveStatus.CANCELLED) {
+            status = runStatus;
+        } else if (totalNodes > nodeBudget) {
+            status = SolveStatus.NODE_BUDGET_EXHAUSTED;
+        }
+    }
+
+    public void countNode() {
+        if (countingNodes && nodes.incrementAndGet() > nodeBudget) {
+            status = SolveStatus.NODE_BUDGET_EXHAUSTED;
+        }
+    }
+
+    public boolean isExhausted() {
+        if (status != null) {
+            return true;
+        }
+        if (cancellationToken != null && cancellationToken.isCancelled()) {
+            status = SolveStatus.CANCELLED;
+            return true;
+        }
+        if (withDeadline && ++checksCount % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() - deadlineNanos >= 0) {
+            status = SolveStatus.DEADLINE_EXCEEDED;
+            return true;
+        }
+        return false;
+    }
+
+    public long getNodes() {
+        return nodes.get();
+    }
+
+    public SolveStatus getStatus() {
+        SolveStatus currentStatus = status;
+        return currentStatus == null ? SolveStatus.COMPLETE : currentStatus;
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        if (duration.isNegative()) {
+            return 0;
+        }
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE / 2;
+        }
+    }
+}
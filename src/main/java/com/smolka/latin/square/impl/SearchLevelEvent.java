@@ -0,0 +1,35 @@
+package com.smolka.latin.square.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// only the subtrees of the first SAMPLED_DEPTH levels of the sequential search are recorded, they are
+// few and long while deeper nodes are too many to record; nodes are the nodes the whole solve counted
+// while the subtree was searched
+@Name("com.smolka.latin.square.SearchLevel")
+@Label("Latin Square Search Level")
+@Category({ "Latin Square" })
+@Description("Search of one subtree rooted at a sampled depth")
+@StackTrace(false)
+public class SearchLevelEvent extends jdk.jfr.Event {
+
+    public static final int SAMPLED_DEPTH = 3;
+
+    @Label("Order")
+    int order;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Variants")
+    long variants;
+
+    @Label("Outcome")
+    String outcome;
+}
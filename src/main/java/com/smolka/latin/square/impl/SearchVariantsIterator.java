@@ -0,0 +1,120 @@
+package com.smolka.latin.square.impl;
+
+import com.smolka.latin.square.VariantsIterator;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// runs a callback-driven search on a virtual thread; every variant is handed over through a
+// synchronous queue, so the search stays parked until the consumer pulls the next one
+public class SearchVariantsIterator implements VariantsIterator {
+
+    private static final int[][] END = new int[0][];
+
+    private final Consumer<Function<int[][], Boolean>> search;
+
+    private final SynchronousQueue<int[][]> handoffQueue;
+
+    private Thread producer;
+
+    private volatile boolean closed;
+
+    private volatile Throwable failure;
+
+    private int[][] next;
+
+    private boolean finished;
+
+    // search receives a callback which returns true when the search should stop
+    public SearchVariantsIterator(Consumer<Function<int[][], Boolean>> search) {
+        this.search = search;
+        this.handoffQueue = new SynchronousQueue<>();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        if (producer == null) {
+            producer = Thread.ofVirtual().start(this::produce);
+        }
+
+        try {
+            next = handoffQueue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        if (next == END) {
+            next = null;
+            finished = true;
+            if (failure != null) {
+                rethrowFailure();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int[][] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        int[][] result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        finished = true;
+        next = null;
+        if (producer != null) {
+            producer.interrupt();
+        }
+    }
+
+    // END is handed over whatever the search throws, so the consumer is never left waiting
+    private void produce() {
+        try {
+            search.accept(variant -> !handOver(variant));
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            handOver(END);
+        }
+    }
+
+    private void rethrowFailure() {
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        throw new RuntimeException(failure);
+    }
+
+    private boolean handOver(int[][] variant) {
+        if (closed) {
+            return false;
+        }
+
+        try {
+            handoffQueue.put(variant);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
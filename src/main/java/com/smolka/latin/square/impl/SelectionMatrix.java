@@ -1,44 +1,137 @@
 package com.smolka.latin.square.impl;
 
-import org.apache.commons.lang3.tuple.Pair;
-
 import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class SelectionMatrix<T> {
 
-    private final List<List<SelectionMatrixElement<T>>> matrix;
+    private static final SubSegmentValidityResult INVALID = new SubSegmentValidityResult(false, false);
+
+    private static final SubSegmentValidityResult VALID_WITHOUT_CHANGES = new SubSegmentValidityResult(true, false);
+
+    private static final SubSegmentValidityResult VALID_WITH_CHANGES = new SubSegmentValidityResult(true, true);
+
+    private static final int INITIAL_TRAIL_CAPACITY = 64;
+
+    // trail entry that restores the length of the decision literals, kept in the first trail word
+    private static final int DECISION_MARKER = Integer.MIN_VALUE;
 
-    private final Set<Integer> unfilledRows;
+    // row-major, wordsPerCell words for the cell (row, column) start at (row * size + column) * wordsPerCell
+    private final long[] domains;
 
-    private final Set<T> allElements;
+    // (row, symbol) -> columns of the row where the symbol is still possible, wordsPerLine words each
+    private final long[] rowSymbolColumns;
+
+    // (column, symbol) -> rows of the column where the symbol is still possible, wordsPerLine words each
+    private final long[] columnSymbolRows;
+
+    private final BitSet unfilledRows;
+
+    private final SymbolIndex<T> symbols;
 
     private final int size;
 
+    private final int wordsPerCell;
+
+    private final int wordsPerLine;
+
+    private final boolean withHiddenSets;
+
     private final Class<T> clazz;
 
-    private SelectionMatrix(List<List<SelectionMatrixElement<T>>> matrix,
-                            Set<T> allElements,
-                            Set<Integer> unfilledRows,
-                            int size,
-                            Class<T> clazz) {
-        this.matrix = matrix;
-        this.allElements = allElements;
-        this.unfilledRows = unfilledRows;
-        this.size = size;
-        this.clazz = clazz;
+    private final PropagationMode propagationMode;
+
+    private final SubSegmentVariantsOccurrenceInfo occurrenceInfo;
+
+    private final AllDifferentPropagator allDifferentPropagator;
+
+    private final int[] segmentCells;
+
+    // segments [0, size) are rows, segments [size, 2 * size) are columns
+    private final PropagationQueue propagationQueue;
+
+    private final BitSet changedRows;
+
+    private int processingSegment;
+
+    private final int[] trailEpochs;
+
+    private int[] trailCells;
+
+    private long[] trailWords;
+
+    private int trailSize;
+
+    private int currentEpoch;
+
+    private final boolean consistent;
+
+    // literals (cell * symbolsCount + symbolIndex) of the row and element decisions that led to this matrix
+    private int[] decisionLiterals;
+
+    private int decisionLiteralsSize;
+
+    private NogoodStore nogoodStore;
+
+    private SolverStatistics statistics;
+
+    private SelectionMatrix(SelectionMatrix<T> source) {
+        this.domains = source.domains.clone();
+        this.rowSymbolColumns = source.rowSymbolColumns.clone();
+        this.columnSymbolRows = source.columnSymbolRows.clone();
+        this.unfilledRows = (BitSet) source.unfilledRows.clone();
+        this.symbols = source.symbols;
+        this.size = source.size;
+        this.wordsPerCell = source.wordsPerCell;
+        this.wordsPerLine = source.wordsPerLine;
+        this.withHiddenSets = source.withHiddenSets;
+        this.clazz = source.clazz;
+        this.propagationMode = source.propagationMode;
+        this.occurrenceInfo = new SubSegmentVariantsOccurrenceInfo(size, wordsPerCell);
+        this.allDifferentPropagator = propagationMode.withAllDifferent() ? new AllDifferentPropagator(size, symbols.size(), wordsPerCell) : null;
+        this.segmentCells = new int[size];
+        this.propagationQueue = new PropagationQueue(2 * size);
+        this.changedRows = new BitSet(size);
+        this.processingSegment = -1;
+        this.trailEpochs = new int[size * size];
+        this.trailCells = new int[INITIAL_TRAIL_CAPACITY];
+        this.trailWords = new long[INITIAL_TRAIL_CAPACITY * wordsPerCell];
+        this.trailSize = 0;
+        this.currentEpoch = 0;
+        this.consistent = source.consistent;
+        this.decisionLiterals = source.decisionLiterals.clone();
+        this.decisionLiteralsSize = source.decisionLiteralsSize;
+        this.nogoodStore = source.nogoodStore;
+        this.statistics = source.statistics;
+        if (statistics != null) {
+            statistics.countMatrixCopy();
+        }
     }
 
     public SelectionMatrix(T[][] field,
                            Set<T> allElements,
                            Class<T> clazz) {
+        this(field, allElements, clazz, PropagationMode.SUB_SEGMENTS);
+    }
+
+    public SelectionMatrix(T[][] field,
+                           Set<T> allElements,
+                           Class<T> clazz,
+                           PropagationMode propagationMode) {
+        this(field, allElements, clazz, propagationMode, true);
+    }
+
+    private SelectionMatrix(T[][] field,
+                            Set<T> allElements,
+                            Class<T> clazz,
+                            PropagationMode propagationMode,
+                            boolean strict) {
         this.clazz = clazz;
+        this.propagationMode = propagationMode;
 
         if (field.length == 0) {
             throw new RuntimeException("Field is empty");
@@ -50,36 +143,58 @@ public class SelectionMatrix<T> {
         }
 
         this.size = field.length;
-        this.matrix = new ArrayList<>();
-        this.allElements = allElements;
-        this.unfilledRows = new HashSet<>();
-
-        for (int row = 0; row < field.length; row++) {
-            List<SelectionMatrixElement<T>> rowMatrix = new ArrayList<>();
-            matrix.add(rowMatrix);
-            for (int column = 0; column < field[row].length; column++) {
-                if (field[row][column] == null) {
-                    rowMatrix.add(new SelectionMatrixElement<>(row, column));
-                } else {
-                    if (!allElements.contains(field[row][column])) {
-                        throw new RuntimeException(String.format("Matrix contains unknown element %s", field[row][column]));
-                    }
-                    rowMatrix.add(new SelectionMatrixElement<>(row, column, new HashSet<>(Set.of(field[row][column]))));
+        this.symbols = new SymbolIndex<>(allElements);
+        this.wordsPerCell = (symbols.size() + Long.SIZE - 1) / Long.SIZE;
+        this.wordsPerLine = (size + Long.SIZE - 1) / Long.SIZE;
+        this.withHiddenSets = symbols.size() == size;
+        this.domains = new long[size * size * wordsPerCell];
+        this.rowSymbolColumns = new long[size * symbols.size() * wordsPerLine];
+        this.columnSymbolRows = new long[size * symbols.size() * wordsPerLine];
+        this.unfilledRows = new BitSet(size);
+        this.occurrenceInfo = new SubSegmentVariantsOccurrenceInfo(size, wordsPerCell);
+        this.allDifferentPropagator = propagationMode.withAllDifferent() ? new AllDifferentPropagator(size, symbols.size(), wordsPerCell) : null;
+        this.segmentCells = new int[size];
+        this.propagationQueue = new PropagationQueue(2 * size);
+        this.changedRows = new BitSet(size);
+        this.processingSegment = -1;
+        this.trailEpochs = new int[size * size];
+        this.trailCells = new int[INITIAL_TRAIL_CAPACITY];
+        this.trailWords = new long[INITIAL_TRAIL_CAPACITY * wordsPerCell];
+        this.trailSize = 0;
+        this.currentEpoch = 0;
+        this.decisionLiterals = new int[size];
+        this.decisionLiteralsSize = 0;
+        this.nogoodStore = null;
+        this.statistics = null;
+
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                T value = field[row][column];
+                if (value == null) {
+                    unfilledRows.set(row);
+                    continue;
+                }
+                if (!symbols.contains(value)) {
+                    throw new RuntimeException(String.format("Matrix contains unknown element %s", value));
                 }
+                int symbolIndex = symbols.indexOf(value);
+                domains[cellOffset(row * size + column) + (symbolIndex >>> 6)] = 1L << symbolIndex;
             }
         }
 
-        for (int rowIndex = 0; rowIndex < matrix.size(); rowIndex++) {
-            List<SelectionMatrixElement<T>> row = matrix.get(rowIndex);
-            for (SelectionMatrixElement<T> elem : row) {
-                if (!elem.isStrong()) {
-                    unfilledRows.add(rowIndex);
-                    break;
-                }
-            }
+        this.consistent = prepareMatrixAndReturnValidity();
+        if (!consistent && strict) {
+            throw new RuntimeException("Matrix is invalid");
         }
+    }
 
-        prepareMatrix();
+    // null instead of an exception when propagation proves that the field has no completion
+    public static <T> SelectionMatrix<T> createIfConsistent(T[][] field,
+                                                            Set<T> allElements,
+                                                            Class<T> clazz,
+                                                            PropagationMode propagationMode) {
+        SelectionMatrix<T> selectionMatrix = new SelectionMatrix<>(field, allElements, clazz, propagationMode, false);
+        return selectionMatrix.consistent ? selectionMatrix : null;
     }
 
     public T[][] toArray() {
@@ -88,38 +203,74 @@ public class SelectionMatrix<T> {
         }
 
         @SuppressWarnings("unchecked")
-        T[][] result = (T[][]) Array.newInstance(clazz, size, size);;
+        T[][] result = (T[][]) Array.newInstance(clazz, size, size);
         for (int row = 0; row < size; row++) {
             for (int column = 0; column < size; column++) {
-                result[row][column] = getElement(row, column).getStrongValue();
+                result[row][column] = symbols.symbolAt(cellFirst(row * size + column));
             }
         }
 
         return result;
     }
 
-    public SelectionMatrixElement<T> getElement(int row, int column) {
-        return matrix.get(row).get(column);
+    // row-major symbol indices of the filled matrix, written without boxing
+    public void writeSymbolIndices(int[] target) {
+        if (!isFilled()) {
+            throw new RuntimeException("Attempt to read symbols of unfilled matrix");
+        }
+
+        for (int cell = 0; cell < size * size; cell++) {
+            target[cell] = cellFirst(cell);
+        }
+    }
+
+    // index of the first candidate symbol of the cell starting at fromSymbolIndex, -1 when there is none
+    public int nextVariant(int row, int column, int fromSymbolIndex) {
+        return cellNext(row * size + column, fromSymbolIndex);
+    }
+
+    public T getSymbol(int symbolIndex) {
+        return symbols.symbolAt(symbolIndex);
+    }
+
+    public int getSymbolsCount() {
+        return symbols.size();
+    }
+
+    public int getVariantsSize(int row, int column) {
+        return cellSize(row * size + column);
+    }
+
+    public int getColumnsCountForSymbolInRow(int row, T symbol) {
+        return lineSize(rowSymbolColumns, lineOffset(row, symbols.indexOf(symbol)));
+    }
+
+    public int getRowsCountForSymbolInColumn(int column, T symbol) {
+        return lineSize(columnSymbolRows, lineOffset(column, symbols.indexOf(symbol)));
+    }
+
+    public int getSize() {
+        return size;
     }
 
     public boolean isFilled() {
         return unfilledRows.isEmpty();
     }
 
-    public Pair<Integer, List<SelectionMatrixElement<T>>> getUnfilledRowAndIndexWithMinimumVariants() {
-        if (unfilledRows.isEmpty()) {
-            return Pair.of(null, null);
-        }
+    public int nextUnfilledRow(int fromRow) {
+        return unfilledRows.nextSetBit(fromRow);
+    }
 
-        int resultIndex = unfilledRows.stream().findFirst().orElseThrow();
+    // -1 when every row is filled
+    public int getUnfilledRowWithMinimumVariants() {
+        int resultIndex = unfilledRows.nextSetBit(0);
         int min = Integer.MAX_VALUE;
 
-        for (int unfilledRowIndex : unfilledRows) {
-            int allVariantsSize = matrix.get(unfilledRowIndex)
-                    .stream()
-                    .map(SelectionMatrixElement::getVariantsSize)
-                    .reduce(Integer::sum)
-                    .orElseThrow();
+        for (int unfilledRowIndex = unfilledRows.nextSetBit(0); unfilledRowIndex >= 0; unfilledRowIndex = unfilledRows.nextSetBit(unfilledRowIndex + 1)) {
+            int allVariantsSize = 0;
+            for (int column = 0; column < size; column++) {
+                allVariantsSize += cellSize(unfilledRowIndex * size + column);
+            }
 
             int avgSize = (allVariantsSize / size);
 
@@ -129,248 +280,761 @@ public class SelectionMatrix<T> {
             }
         }
 
-        return Pair.of(resultIndex, matrix.get(resultIndex));
+        return resultIndex;
     }
 
-    public SelectionMatrix<T> getCopy() {
-        List<List<SelectionMatrixElement<T>>> newMatrix = new ArrayList<>();
-        Set<Integer> unfilledRows = new HashSet<>(this.unfilledRows);
-        for (List<SelectionMatrixElement<T>> row : matrix) {
-            List<SelectionMatrixElement<T>> newRow = new ArrayList<>();
-            newMatrix.add(newRow);
-            for (SelectionMatrixElement<T> selectionMatrixElement : row) {
-                newRow.add(selectionMatrixElement.copy());
+    // with exactly two unfilled rows every column with two open cells misses the same pair of symbols
+    // in both of them; these pairs link the symbols into disjoint cycles and each cycle can be laid out
+    // in two ways, so there are 2^cycles completions; returns -1 when the matrix is not in that shape
+    public long getTwoUnfilledRowsCompletionsCount() {
+        int firstRow = unfilledRows.nextSetBit(0);
+        int secondRow = firstRow < 0 ? -1 : unfilledRows.nextSetBit(firstRow + 1);
+        if (!withHiddenSets || secondRow < 0 || unfilledRows.nextSetBit(secondRow + 1) >= 0) {
+            return -1;
+        }
+
+        int symbolsCount = symbols.size();
+        int[] symbolDegrees = new int[symbolsCount];
+        int[] symbolParents = new int[symbolsCount];
+        for (int symbol = 0; symbol < symbolsCount; symbol++) {
+            symbolParents[symbol] = symbol;
+        }
+
+        int cycles = 0;
+        for (int column = 0; column < size; column++) {
+            int firstCell = firstRow * size + column;
+            int secondCell = secondRow * size + column;
+            int firstSize = cellSize(firstCell);
+            int secondSize = cellSize(secondCell);
+            if (firstSize == 1 && secondSize == 1) {
+                continue;
+            }
+            if (firstSize != 2 || secondSize != 2 || !sameCells(firstCell, secondCell)) {
+                return -1;
+            }
+
+            int symbol = cellFirst(firstCell);
+            int otherSymbol = cellNext(firstCell, symbol + 1);
+            symbolDegrees[symbol]++;
+            symbolDegrees[otherSymbol]++;
+
+            int root = findSymbolRoot(symbolParents, symbol);
+            int otherRoot = findSymbolRoot(symbolParents, otherSymbol);
+            if (root == otherRoot) {
+                cycles++;
+            } else {
+                symbolParents[root] = otherRoot;
+            }
+        }
+
+        for (int symbol = 0; symbol < symbolsCount; symbol++) {
+            if (symbolDegrees[symbol] != 0 && symbolDegrees[symbol] != 2) {
+                return -1;
             }
         }
 
-        return new SelectionMatrix<>(newMatrix, allElements, unfilledRows, size, clazz);
+        return cycles < Long.SIZE - 1 ? 1L << cycles : -1;
+    }
+
+    public SelectionMatrix<T> getCopy() {
+        return new SelectionMatrix<>(this);
+    }
+
+    // copies share the store, so a search that works on several threads gives every thread its own store
+    public void setNogoodStore(NogoodStore nogoodStore) {
+        this.nogoodStore = nogoodStore;
+    }
+
+    public NogoodStore getNogoodStore() {
+        return nogoodStore;
+    }
+
+    // shared with copies like the nogood store; null keeps every counting site a single check
+    public void setStatistics(SolverStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public SolverStatistics getStatistics() {
+        return statistics;
+    }
+
+    // called by the search when every branch below the current decisions failed
+    public void learnNogood() {
+        if (nogoodStore == null) {
+            return;
+        }
+
+        long learnedCount = nogoodStore.getLearnedCount();
+        nogoodStore.add(decisionLiterals, decisionLiteralsSize);
+        if (statistics != null && nogoodStore.getLearnedCount() > learnedCount) {
+            statistics.countLearnedNogood();
+        }
+    }
+
+    public int checkpoint() {
+        currentEpoch++;
+        return trailSize;
+    }
+
+    public void rollback(int checkpoint) {
+        for (int index = trailSize - 1; index >= checkpoint; index--) {
+            int cell = trailCells[index];
+            if (cell == DECISION_MARKER) {
+                decisionLiteralsSize = (int) trailWords[index * wordsPerCell];
+            } else if (cell < 0) {
+                unfilledRows.set(-cell - 1);
+            } else {
+                for (int word = 0; word < wordsPerCell; word++) {
+                    writeCellWord(cell, word, trailWords[index * wordsPerCell + word]);
+                }
+            }
+        }
+        trailSize = checkpoint;
+        currentEpoch++;
     }
 
     public boolean setRowToMatrixAndReturnValidity(int rowIndex, Map<Integer, T> rowToSet) {
+        int[] symbolIndices = new int[rowToSet.size()];
+        for (int valueIndex = 0; valueIndex < symbolIndices.length; valueIndex++) {
+            symbolIndices[valueIndex] = symbols.indexOf(rowToSet.get(valueIndex));
+        }
+        return setRowToMatrixAndReturnValidity(rowIndex, symbolIndices);
+    }
+
+    public boolean setRowToMatrixAndReturnValidity(int rowIndex, int[] symbolIndices) {
         if (unfilledRows.isEmpty()) {
             throw new RuntimeException("Attempt to set row for empty matrix");
         }
 
-        if (rowToSet.size() == size) {
-            unfilledRows.remove(rowIndex);
+        if (symbolIndices.length == size) {
+            markRowAsFilled(rowIndex);
         }
-        List<SelectionMatrixElement<T>> rowInMatrix = matrix.get(rowIndex);
 
-        List<RowInfo<T>> unfilledMatrix = getUnfilledRowsInOrder();
+        int decisionStart = startDecision(symbolIndices.length);
+        for (int valueIndex = 0; valueIndex < symbolIndices.length; valueIndex++) {
+            int symbolIndex = symbolIndices[valueIndex];
+            addDecisionLiteral(rowIndex * size + valueIndex, symbolIndex);
+            cellReset(rowIndex * size + valueIndex, symbolIndex);
 
-        for (int valueIndex = 0; valueIndex < rowToSet.size(); valueIndex++) {
-            T value = rowToSet.get(valueIndex);
-            rowInMatrix.get(valueIndex).resetVariants(value);
-
-            for (RowInfo<T> unfilledRow : unfilledMatrix) {
-                int unfilledRowIndex = unfilledRow.rowIndex();
+            for (int unfilledRowIndex = unfilledRows.nextSetBit(0); unfilledRowIndex >= 0; unfilledRowIndex = unfilledRows.nextSetBit(unfilledRowIndex + 1)) {
                 if (unfilledRowIndex == rowIndex) {
                     continue;
                 }
 
-                List<SelectionMatrixElement<T>> unfilledRowValues = unfilledRow.rowValues();
-                unfilledRowValues.get(valueIndex).removeVariant(value);
+                cellRemove(unfilledRowIndex * size + valueIndex, symbolIndex);
             }
         }
 
-        return correctUnfilledPartAndReturnValidity();
+        boolean valid = finishDecisionAndReturnValidity(decisionStart);
+        if (!valid && statistics != null) {
+            statistics.countRejectedRowCandidate();
+        }
+        return valid;
     }
 
-    private boolean correctUnfilledPartAndReturnValidity() {
-        List<RowInfo<T>> unfilledMatrix = getUnfilledRowsInOrder();
+    public boolean setElementToMatrixAndReturnValidity(int rowIndex, int columnIndex, T value) {
+        if (unfilledRows.isEmpty()) {
+            throw new RuntimeException("Attempt to set element for empty matrix");
+        }
 
-        boolean wasChanges;
-        do {
-            SubSegmentValidityResult rowProcessResult = postProcessRowsSubSegmentsAndReturnValidity(unfilledMatrix);
-            if (!rowProcessResult.isValid()) {
-                return false;
+        int symbolIndex = symbols.indexOf(value);
+        int decisionStart = startDecision(1);
+        addDecisionLiteral(rowIndex * size + columnIndex, symbolIndex);
+        cellReset(rowIndex * size + columnIndex, symbolIndex);
+
+        for (int otherColumnIndex = 0; otherColumnIndex < size; otherColumnIndex++) {
+            if (otherColumnIndex != columnIndex) {
+                cellRemove(rowIndex * size + otherColumnIndex, symbolIndex);
+            }
+        }
+
+        for (int unfilledRowIndex = unfilledRows.nextSetBit(0); unfilledRowIndex >= 0; unfilledRowIndex = unfilledRows.nextSetBit(unfilledRowIndex + 1)) {
+            if (unfilledRowIndex != rowIndex) {
+                cellRemove(unfilledRowIndex * size + columnIndex, symbolIndex);
+            }
+        }
+
+        return finishDecisionAndReturnValidity(decisionStart);
+    }
+
+    boolean isLiteralSet(int literal) {
+        int symbolsCount = symbols.size();
+        int cell = literal / symbolsCount;
+        int symbolIndex = literal - cell * symbolsCount;
+        return domains[cellOffset(cell) + (symbolIndex >>> 6)] == 1L << symbolIndex && cellSize(cell) == 1;
+    }
+
+    private int startDecision(int literalsCount) {
+        if (currentEpoch > 0) {
+            ensureTrailCapacity();
+            trailCells[trailSize] = DECISION_MARKER;
+            trailWords[trailSize * wordsPerCell] = decisionLiteralsSize;
+            trailSize++;
+        }
+        if (decisionLiteralsSize + literalsCount > decisionLiterals.length) {
+            decisionLiterals = Arrays.copyOf(decisionLiterals, Math.max(decisionLiterals.length * 2, decisionLiteralsSize + literalsCount));
+        }
+        return decisionLiteralsSize;
+    }
+
+    private void addDecisionLiteral(int cell, int symbolIndex) {
+        decisionLiterals[decisionLiteralsSize++] = cell * symbols.size() + symbolIndex;
+    }
+
+    private boolean finishDecisionAndReturnValidity(int decisionStart) {
+        if (isDecisionRejected(decisionStart)) {
+            return false;
+        }
+        if (statistics == null) {
+            return correctUnfilledPartAndReturnValidity();
+        }
+
+        long startNanos = System.nanoTime();
+        boolean valid = correctUnfilledPartAndReturnValidity();
+        statistics.addPropagationNanos(System.nanoTime() - startNanos);
+        return valid;
+    }
+
+    // a decision that completes a learned nogood fails without propagation
+    private boolean isDecisionRejected(int decisionStart) {
+        if (nogoodStore == null || !nogoodStore.isViolated(this, decisionLiterals, decisionStart, decisionLiteralsSize)) {
+            return false;
+        }
+
+        if (statistics != null) {
+            statistics.countNogoodHit();
+        }
+        propagationQueue.clear();
+        changedRows.clear();
+        return true;
+    }
+
+    private boolean correctUnfilledPartAndReturnValidity() {
+        PropagationEvent event = new PropagationEvent();
+        event.begin();
+        int rounds = 0;
+        for (int segment = propagationQueue.poll(); segment >= 0; segment = propagationQueue.poll()) {
+            int length = fillSegmentCells(segment);
+            if (length == 0) {
+                continue;
             }
-            wasChanges = rowProcessResult.wasChanges();
+            rounds++;
+            if (statistics != null) {
+                statistics.countFixpointIteration();
+            }
+
+            processingSegment = segment;
+            SubSegmentValidityResult processResult = postProcessSubSegmentAndReturnValidity(segment, segmentCells, length);
+            processingSegment = -1;
 
-            SubSegmentValidityResult columnProcessResult = postProcessColumnsSubSegmentsAndReturnValidity(unfilledMatrix);
-            if (!columnProcessResult.isValid()) {
+            if (!processResult.isValid()) {
+                propagationQueue.clear();
+                changedRows.clear();
+                learnNogood();
+                commitPropagationEvent(event, rounds, false);
                 return false;
             }
-            if (columnProcessResult.wasChanges()) {
-                wasChanges = true;
+        }
+
+        for (int changedRowIndex = changedRows.nextSetBit(0); changedRowIndex >= 0; changedRowIndex = changedRows.nextSetBit(changedRowIndex + 1)) {
+            if (!unfilledRows.get(changedRowIndex)) {
+                continue;
             }
-        } while (wasChanges);
 
-        for (RowInfo<T> unfilledRow : unfilledMatrix) {
-            boolean reallyUnfilled = unfilledRow.rowValues().stream().anyMatch(e -> !e.isStrong());
+            boolean reallyUnfilled = false;
+            for (int column = 0; column < size; column++) {
+                if (cellSize(changedRowIndex * size + column) != 1) {
+                    reallyUnfilled = true;
+                    break;
+                }
+            }
             if (!reallyUnfilled) {
-                unfilledRows.remove(unfilledRow.rowIndex());
+                markRowAsFilled(changedRowIndex);
             }
         }
+        changedRows.clear();
 
+        commitPropagationEvent(event, rounds, true);
         return true;
     }
 
-    private SubSegmentValidityResult postProcessColumnsSubSegmentsAndReturnValidity(List<RowInfo<T>> matrix) {
-        boolean wasChanges = false;
-        for (int columnIndex = 0; columnIndex < size; columnIndex++) {
-            List<SelectionMatrixElement<T>> column = new ArrayList<>();
-            for (RowInfo<T> row : matrix) {
-                column.add(row.rowValues().get(columnIndex));
+    private void commitPropagationEvent(PropagationEvent event, int rounds, boolean valid) {
+        if (event.shouldCommit()) {
+            event.order = size;
+            event.rounds = rounds;
+            event.valid = valid;
+            event.commit();
+        }
+    }
+
+    private int fillSegmentCells(int segment) {
+        if (segment < size) {
+            if (!unfilledRows.get(segment)) {
+                return 0;
             }
+            for (int columnIndex = 0; columnIndex < size; columnIndex++) {
+                segmentCells[columnIndex] = segment * size + columnIndex;
+            }
+            return size;
+        }
 
-            SubSegmentValidityResult processResult = postProcessSubSegmentAndReturnValidity(column);
+        int columnIndex = segment - size;
+        int length = 0;
+        for (int rowIndex = unfilledRows.nextSetBit(0); rowIndex >= 0; rowIndex = unfilledRows.nextSetBit(rowIndex + 1)) {
+            segmentCells[length++] = rowIndex * size + columnIndex;
+        }
+        return length;
+    }
+
+    private void scheduleCellSegments(int cell) {
+        int row = cell / size;
+        int column = cell - row * size;
+        boolean isStrong = cellSize(cell) == 1;
+
+        changedRows.set(row);
+        if (row != processingSegment) {
+            propagationQueue.schedule(row, isStrong);
+        }
+        if (size + column != processingSegment) {
+            propagationQueue.schedule(size + column, isStrong);
+        }
+    }
 
-            if (!processResult.isValid) {
-                return new SubSegmentValidityResult(false, false);
+    private SubSegmentValidityResult postProcessSubSegmentAndReturnValidity(int segment, int[] subSegment, int length) {
+        boolean wasChanges = false;
+
+        if (propagationMode.withSubSegments()) {
+            boolean wasChangesOnPass;
+            do {
+                SubSegmentValidityResult nakedSetsResult = removeNakedSetsAndReturnValidity(subSegment, length);
+                if (!nakedSetsResult.isValid()) {
+                    return INVALID;
+                }
+                if (nakedSetsResult.wasChanges()) {
+                    wasChanges = true;
+                }
+
+                wasChangesOnPass = false;
+                if (withHiddenSets) {
+                    SubSegmentValidityResult hiddenSetsResult = fixHiddenSetsAndReturnValidity(segment);
+                    if (!hiddenSetsResult.isValid()) {
+                        return INVALID;
+                    }
+                    wasChangesOnPass = hiddenSetsResult.wasChanges();
+                    if (wasChangesOnPass) {
+                        wasChanges = true;
+                    }
+                }
+            } while (wasChangesOnPass);
+        }
+
+        if (propagationMode.withAllDifferent()) {
+            if (!allDifferentPropagator.propagateAndReturnValidity(domains, subSegment, length)) {
+                return INVALID;
             }
 
-            if (processResult.wasChanges) {
-                wasChanges = true;
+            long[] unsupportedVariants = allDifferentPropagator.getUnsupportedVariants();
+            for (int index = 0; index < length; index++) {
+                if (cellRemoveAll(subSegment[index], unsupportedVariants, allDifferentPropagator.getUnsupportedVariantsOffset(index))) {
+                    wasChanges = true;
+                }
             }
         }
 
-        return new SubSegmentValidityResult(true, wasChanges);
+        return wasChanges ? VALID_WITH_CHANGES : VALID_WITHOUT_CHANGES;
     }
 
-    private SubSegmentValidityResult postProcessRowsSubSegmentsAndReturnValidity(List<RowInfo<T>> matrix) {
+    // a symbol with a single place in the line is a hidden single, two symbols sharing the same
+    // two places are a hidden pair; both are read from the symbol views without scanning cells
+    private SubSegmentValidityResult fixHiddenSetsAndReturnValidity(int segment) {
+        boolean isRow = segment < size;
+        int line = isRow ? segment : segment - size;
+        long[] view = isRow ? rowSymbolColumns : columnSymbolRows;
         boolean wasChanges = false;
-        for (RowInfo<T> row : matrix) {
-            SubSegmentValidityResult processResult = postProcessSubSegmentAndReturnValidity(row.rowValues());
-            if (!processResult.isValid) {
-                return new SubSegmentValidityResult(false, false);
+
+        for (int symbolIndex = 0; symbolIndex < symbols.size(); symbolIndex++) {
+            int offset = lineOffset(line, symbolIndex);
+            int placesCount = lineSize(view, offset);
+            if (placesCount == 0) {
+                return INVALID;
             }
 
-            if (processResult.wasChanges) {
-                wasChanges = true;
+            if (placesCount == 1) {
+                int cell = lineCell(isRow, line, lineFirst(view, offset));
+                if (cellSize(cell) != 1) {
+                    cellReset(cell, symbolIndex);
+                    wasChanges = true;
+                }
+                continue;
             }
-        }
 
-        return new SubSegmentValidityResult(true, wasChanges);
-    }
+            if (placesCount != 2) {
+                continue;
+            }
 
-    private SubSegmentValidityResult postProcessSubSegmentAndReturnValidity(List<SelectionMatrixElement<T>> subSegment) {
-        SubSegmentVariantsOccurrenceInfo<T> subSegmentVariantsOccurrenceInfo = new SubSegmentVariantsOccurrenceInfo<>();
-        for (int index = 0; index < subSegment.size(); index++) {
-            subSegmentVariantsOccurrenceInfo.putOccurrenceInfo(subSegment.get(index).getVariants(), index);
-        }
+            for (int otherSymbolIndex = symbolIndex + 1; otherSymbolIndex < symbols.size(); otherSymbolIndex++) {
+                int otherOffset = lineOffset(line, otherSymbolIndex);
+                if (!sameLines(view, offset, otherOffset)) {
+                    continue;
+                }
 
-        if (subSegmentVariantsOccurrenceInfo.hasError()) {
-            return new SubSegmentValidityResult(false, false);
+                int firstPlace = lineFirst(view, offset);
+                int secondPlace = lineNext(view, offset, firstPlace + 1);
+                if (cellRetainPair(lineCell(isRow, line, firstPlace), symbolIndex, otherSymbolIndex)) {
+                    wasChanges = true;
+                }
+                if (cellRetainPair(lineCell(isRow, line, secondPlace), symbolIndex, otherSymbolIndex)) {
+                    wasChanges = true;
+                }
+                break;
+            }
         }
 
-        Map<Set<T>, Set<Integer>> variantsWithSizeOccurrenceEquality = subSegmentVariantsOccurrenceInfo.getVariantsWithSizeOccurrenceEquality();
+        return wasChanges ? VALID_WITH_CHANGES : VALID_WITHOUT_CHANGES;
+    }
+
+    private SubSegmentValidityResult removeNakedSetsAndReturnValidity(int[] subSegment, int length) {
         boolean wasChanges = false;
+        boolean wasChangesOnPass;
+        do {
+            occurrenceInfo.clear();
+            for (int index = 0; index < length; index++) {
+                occurrenceInfo.putOccurrenceInfo(domains, cellOffset(subSegment[index]));
+            }
 
-        for (Map.Entry<Set<T>, Set<Integer>> variantWithSizeOccurrenceEqualityEntry : variantsWithSizeOccurrenceEquality.entrySet()) {
-            Set<T> variant = variantWithSizeOccurrenceEqualityEntry.getKey();
-            Set<Integer> onIndexes = variantWithSizeOccurrenceEqualityEntry.getValue();
+            if (occurrenceInfo.hasError()) {
+                return INVALID;
+            }
 
-            for (int otherIndex = 0; otherIndex < subSegment.size(); otherIndex++) {
-                if (onIndexes.contains(otherIndex)) {
+            wasChangesOnPass = false;
+            for (int index = 0; index < length; index++) {
+                if (!occurrenceInfo.hasSizeOccurrenceEquality(index)) {
                     continue;
                 }
 
-                SelectionMatrixElement<T> otherElement = subSegment.get(otherIndex);
-                if (otherElement.removeVariants(variant)) {
-                    wasChanges = true;
+                int variantsOffset = occurrenceInfo.getVariantsOffset(index);
+                for (int otherIndex = 0; otherIndex < length; otherIndex++) {
+                    if (occurrenceInfo.getGroup(otherIndex) == index) {
+                        continue;
+                    }
+
+                    if (cellRemoveAll(subSegment[otherIndex], occurrenceInfo.getVariants(), variantsOffset)) {
+                        wasChangesOnPass = true;
+                    }
+                }
+            }
+
+            if (wasChangesOnPass) {
+                wasChanges = true;
+            }
+        } while (wasChangesOnPass);
+
+        return wasChanges ? VALID_WITH_CHANGES : VALID_WITHOUT_CHANGES;
+    }
+
+    private boolean prepareMatrixAndReturnValidity() {
+        long[] rowStrongValues = new long[size * wordsPerCell];
+        long[] columnStrongValues = new long[size * wordsPerCell];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                int offset = cellOffset(row * size + column);
+                for (int word = 0; word < wordsPerCell; word++) {
+                    rowStrongValues[row * wordsPerCell + word] |= domains[offset + word];
+                    columnStrongValues[column * wordsPerCell + word] |= domains[offset + word];
                 }
             }
         }
 
-        if (wasChanges) {
-            SubSegmentValidityResult newResult = postProcessSubSegmentAndReturnValidity(subSegment);
-            if (!newResult.isValid()) {
-                return new SubSegmentValidityResult(false, false);
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                int cell = row * size + column;
+                if (cellSize(cell) != 0) {
+                    continue;
+                }
+
+                int offset = cellOffset(cell);
+                boolean isEmpty = true;
+                for (int word = 0; word < wordsPerCell; word++) {
+                    domains[offset + word] = fullWord(word) & ~rowStrongValues[row * wordsPerCell + word] & ~columnStrongValues[column * wordsPerCell + word];
+                    if (domains[offset + word] != 0L) {
+                        isEmpty = false;
+                    }
+                }
+                if (isEmpty) {
+                    return false;
+                }
             }
-            return new SubSegmentValidityResult(true, wasChanges);
         }
 
-        return new SubSegmentValidityResult(true, wasChanges);
+        rebuildSymbolViews();
+
+        for (int segment = 0; segment < 2 * size; segment++) {
+            propagationQueue.schedule(segment, false);
+        }
+        changedRows.set(0, size);
+
+        return correctUnfilledPartAndReturnValidity();
     }
 
-    private List<RowInfo<T>> getUnfilledRowsInOrder() {
-        List<RowInfo<T>> result = new ArrayList<>();
-        List<Integer> unfilledRowsIndicesInOrder = unfilledRows.stream().sorted().toList();
+    private long fullWord(int word) {
+        int bitsInWord = symbols.size() - word * Long.SIZE;
+        return bitsInWord >= Long.SIZE ? -1L : (1L << bitsInWord) - 1L;
+    }
 
-        for (Integer unfilledRowIndex : unfilledRowsIndicesInOrder) {
-            result.add(new RowInfo<>(unfilledRowIndex, matrix.get(unfilledRowIndex)));
-        }
+    private int cellOffset(int cell) {
+        return cell * wordsPerCell;
+    }
 
+    private int cellSize(int cell) {
+        if (wordsPerCell == 1) {
+            return Long.bitCount(domains[cell]);
+        }
+        int offset = cellOffset(cell);
+        int result = 0;
+        for (int word = 0; word < wordsPerCell; word++) {
+            result += Long.bitCount(domains[offset + word]);
+        }
         return result;
     }
 
-    private void prepareMatrix() {
-        for (int row = 0; row < matrix.size(); row++) {
-            List<SelectionMatrixElement<T>> emptyElementsByRow = getEmptyElementsByRow(row, matrix);
-            for (SelectionMatrixElement<T> emptyElementInRow : emptyElementsByRow) {
-                List<SelectionMatrixElement<T>> constraints = getStrongElementsByElementSegment(emptyElementInRow, matrix);
-                Set<T> valuesFromConstraints = constraints.stream().map(SelectionMatrixElement::getStrongValue).collect(Collectors.toSet());
-                Set<T> newVariants = new HashSet<>(allElements);
-                newVariants.removeAll(valuesFromConstraints);
-                if (newVariants.isEmpty()) {
-                    throw new RuntimeException("Matrix is invalid");
-                }
+    private int cellFirst(int cell) {
+        int offset = cellOffset(cell);
+        for (int word = 0; word < wordsPerCell; word++) {
+            if (domains[offset + word] != 0L) {
+                return word * Long.SIZE + Long.numberOfTrailingZeros(domains[offset + word]);
+            }
+        }
+        return -1;
+    }
 
-                emptyElementInRow.resetVariants(newVariants);
+    private int cellNext(int cell, int fromSymbolIndex) {
+        int offset = cellOffset(cell);
+        for (int word = fromSymbolIndex >>> 6; word < wordsPerCell; word++) {
+            long bits = domains[offset + word];
+            if (word == fromSymbolIndex >>> 6) {
+                bits &= -1L << fromSymbolIndex;
+            }
+            if (bits != 0L) {
+                return word * Long.SIZE + Long.numberOfTrailingZeros(bits);
             }
         }
+        return -1;
+    }
 
-        if (!correctUnfilledPartAndReturnValidity()) {
-            throw new RuntimeException("Matrix is invalid");
+    private boolean sameCells(int cell, int otherCell) {
+        int offset = cellOffset(cell);
+        int otherOffset = cellOffset(otherCell);
+        for (int word = 0; word < wordsPerCell; word++) {
+            if (domains[offset + word] != domains[otherOffset + word]) {
+                return false;
+            }
         }
+        return true;
     }
 
-    private List<SelectionMatrixElement<T>> getStrongElementsByElementSegment(SelectionMatrixElement<T> element, List<List<SelectionMatrixElement<T>>> matrix) {
-        List<SelectionMatrixElement<T>> result = new ArrayList<>();
-        int row = element.getRow();
-        int column = element.getColumn();
+    private int findSymbolRoot(int[] symbolParents, int symbol) {
+        while (symbolParents[symbol] != symbol) {
+            symbolParents[symbol] = symbolParents[symbolParents[symbol]];
+            symbol = symbolParents[symbol];
+        }
+        return symbol;
+    }
 
-        for (int rowIndex = 0; rowIndex < matrix.size(); rowIndex++) {
-            if (rowIndex == row) {
-                continue;
+    private void cellReset(int cell, int symbolIndex) {
+        int offset = cellOffset(cell);
+        int symbolWord = symbolIndex >>> 6;
+        long symbolBit = 1L << symbolIndex;
+        if (domains[offset + symbolWord] == symbolBit && cellSize(cell) == 1) {
+            return;
+        }
+
+        saveToTrail(cell);
+        for (int word = 0; word < wordsPerCell; word++) {
+            writeCellWord(cell, word, word == symbolWord ? symbolBit : 0L);
+        }
+        scheduleCellSegments(cell);
+    }
+
+    private void cellRemove(int cell, int symbolIndex) {
+        int symbolWord = symbolIndex >>> 6;
+        long bits = domains[cellOffset(cell) + symbolWord];
+        long symbolBit = 1L << symbolIndex;
+        if ((bits & symbolBit) == 0L) {
+            return;
+        }
+
+        saveToTrail(cell);
+        writeCellWord(cell, symbolWord, bits & ~symbolBit);
+        scheduleCellSegments(cell);
+    }
+
+    private boolean cellRetainPair(int cell, int firstSymbolIndex, int secondSymbolIndex) {
+        if (cellSize(cell) <= 2) {
+            return false;
+        }
+
+        saveToTrail(cell);
+        int offset = cellOffset(cell);
+        for (int word = 0; word < wordsPerCell; word++) {
+            long retained = 0L;
+            if (firstSymbolIndex >>> 6 == word) {
+                retained |= 1L << firstSymbolIndex;
             }
-            SelectionMatrixElement<T> matrixElem = matrix.get(rowIndex).get(column);
-            if (matrixElem.isStrong()) {
-                result.add(matrixElem);
+            if (secondSymbolIndex >>> 6 == word) {
+                retained |= 1L << secondSymbolIndex;
             }
+            writeCellWord(cell, word, domains[offset + word] & retained);
         }
+        scheduleCellSegments(cell);
+        return true;
+    }
 
-        for (int columnIndex = 0; columnIndex < matrix.size(); columnIndex++) {
-            if (columnIndex == column) {
-                continue;
+    private boolean cellRemoveAll(int cell, long[] variants, int variantsOffset) {
+        int offset = cellOffset(cell);
+        boolean intersects = false;
+        for (int word = 0; word < wordsPerCell; word++) {
+            if ((domains[offset + word] & variants[variantsOffset + word]) != 0L) {
+                intersects = true;
+                break;
             }
-            SelectionMatrixElement<T> matrixElem = matrix.get(row).get(columnIndex);
-            if (matrixElem.isStrong()) {
-                result.add(matrixElem);
+        }
+        if (!intersects) {
+            return false;
+        }
+
+        saveToTrail(cell);
+        for (int word = 0; word < wordsPerCell; word++) {
+            writeCellWord(cell, word, domains[offset + word] & ~variants[variantsOffset + word]);
+        }
+        scheduleCellSegments(cell);
+        return true;
+    }
+
+    private void writeCellWord(int cell, int word, long newBits) {
+        int position = cellOffset(cell) + word;
+        long oldBits = domains[position];
+        if (oldBits == newBits) {
+            return;
+        }
+        domains[position] = newBits;
+        if (statistics != null && (oldBits & ~newBits) != 0L) {
+            statistics.countRemovedValues(Long.bitCount(oldBits & ~newBits));
+        }
+
+        int row = cell / size;
+        int column = cell - row * size;
+        long rowBit = 1L << row;
+        long columnBit = 1L << column;
+        int rowWord = row >>> 6;
+        int columnWord = column >>> 6;
+
+        long changedBits = oldBits ^ newBits;
+        while (changedBits != 0L) {
+            int symbolIndex = word * Long.SIZE + Long.numberOfTrailingZeros(changedBits);
+            changedBits &= changedBits - 1;
+
+            int rowViewPosition = lineOffset(row, symbolIndex) + columnWord;
+            int columnViewPosition = lineOffset(column, symbolIndex) + rowWord;
+            if ((newBits & (1L << symbolIndex)) != 0L) {
+                rowSymbolColumns[rowViewPosition] |= columnBit;
+                columnSymbolRows[columnViewPosition] |= rowBit;
+            } else {
+                rowSymbolColumns[rowViewPosition] &= ~columnBit;
+                columnSymbolRows[columnViewPosition] &= ~rowBit;
             }
         }
+    }
 
+    private void rebuildSymbolViews() {
+        Arrays.fill(rowSymbolColumns, 0L);
+        Arrays.fill(columnSymbolRows, 0L);
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                int offset = cellOffset(row * size + column);
+                for (int word = 0; word < wordsPerCell; word++) {
+                    long bits = domains[offset + word];
+                    while (bits != 0L) {
+                        int symbolIndex = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        rowSymbolColumns[lineOffset(row, symbolIndex) + (column >>> 6)] |= 1L << column;
+                        columnSymbolRows[lineOffset(column, symbolIndex) + (row >>> 6)] |= 1L << row;
+                    }
+                }
+            }
+        }
+    }
+
+    private int lineOffset(int line, int symbolIndex) {
+        return (line * symbols.size() + symbolIndex) * wordsPerLine;
+    }
+
+    private int lineCell(boolean isRow, int line, int place) {
+        return isRow ? line * size + place : place * size + line;
+    }
+
+    private int lineSize(long[] view, int offset) {
+        int result = 0;
+        for (int word = 0; word < wordsPerLine; word++) {
+            result += Long.bitCount(view[offset + word]);
+        }
         return result;
     }
 
-    private List<SelectionMatrixElement<T>> getEmptyElementsByRow(int row, List<List<SelectionMatrixElement<T>>> matrix) {
-        List<SelectionMatrixElement<T>> result = new ArrayList<>();
+    private int lineFirst(long[] view, int offset) {
+        return lineNext(view, offset, 0);
+    }
 
-        for (int column = 0; column < matrix.size(); column++) {
-            if (matrix.get(row).get(column).isEmpty()) {
-                result.add(matrix.get(row).get(column));
+    private int lineNext(long[] view, int offset, int fromPlace) {
+        for (int word = fromPlace >>> 6; word < wordsPerLine; word++) {
+            long bits = view[offset + word];
+            if (word == fromPlace >>> 6) {
+                bits &= -1L << fromPlace;
+            }
+            if (bits != 0L) {
+                return word * Long.SIZE + Long.numberOfTrailingZeros(bits);
             }
         }
-        return result;
+        return -1;
     }
 
-    private record RowInfo<T>(
-            int rowIndex,
-            List<SelectionMatrixElement<T>> rowValues
-    ) {
+    private boolean sameLines(long[] view, int firstOffset, int secondOffset) {
+        for (int word = 0; word < wordsPerLine; word++) {
+            if (view[firstOffset + word] != view[secondOffset + word]) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (o == null || getClass() != o.getClass()) return false;
-            RowInfo<?> rowInfo = (RowInfo<?>) o;
-            return rowIndex == rowInfo.rowIndex && Objects.equals(rowValues, rowInfo.rowValues);
+    private void saveToTrail(int cell) {
+        if (trailEpochs[cell] == currentEpoch) {
+            return;
         }
+        trailEpochs[cell] = currentEpoch;
+        ensureTrailCapacity();
+        trailCells[trailSize] = cell;
+        System.arraycopy(domains, cellOffset(cell), trailWords, trailSize * wordsPerCell, wordsPerCell);
+        trailSize++;
+    }
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(rowIndex, rowValues);
+    private void markRowAsFilled(int rowIndex) {
+        if (!unfilledRows.get(rowIndex)) {
+            return;
+        }
+        unfilledRows.clear(rowIndex);
+        if (currentEpoch > 0) {
+            ensureTrailCapacity();
+            trailCells[trailSize] = -rowIndex - 1;
+            trailSize++;
+        }
+    }
+
+    private void ensureTrailCapacity() {
+        if (trailSize < trailCells.length) {
+            return;
         }
+        trailCells = Arrays.copyOf(trailCells, trailCells.length * 2);
+        trailWords = Arrays.copyOf(trailWords, trailCells.length * wordsPerCell);
     }
 
     private record SubSegmentValidityResult(
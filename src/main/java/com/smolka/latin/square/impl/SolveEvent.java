@@ -0,0 +1,35 @@
+package com.smolka.latin.square.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// the event duration spans one solve call, from the validation of the clues to the last variant;
+// outcome is the SolveStatus name, so cut off searches are told apart from complete ones
+@Name("com.smolka.latin.square.Solve")
+@Label("Latin Square Solve")
+@Category({ "Latin Square" })
+@Description("One solve call of the latin square solver")
+@StackTrace(false)
+public class SolveEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Order")
+    int order;
+
+    @Label("Clue Count")
+    int clueCount;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Variants")
+    long variants;
+
+    @Label("Outcome")
+    String outcome;
+}
@@ -0,0 +1,75 @@
+package com.smolka.latin.square.impl;
+
+import java.util.function.Consumer;
+
+public record SolverSettings(
+        BacktrackingMode backtrackingMode,
+        BranchingStrategy branchingStrategy,
+        PropagationMode propagationMode,
+        int parallelism,
+        int parallelSplitDepth,
+        int portfolioSize,
+        int nogoodCapacity,
+        RestartPolicy restartPolicy,
+        Consumer<SolverStatistics> statisticsListener
+) {
+
+    public SolverSettings {
+        if (parallelism < 1) {
+            throw new RuntimeException("Parallelism must be positive");
+        }
+        if (parallelSplitDepth < 0) {
+            throw new RuntimeException("Parallel split depth must not be negative");
+        }
+        if (portfolioSize < 1) {
+            throw new RuntimeException("Portfolio size must be positive");
+        }
+        if (nogoodCapacity < 0) {
+            throw new RuntimeException("Nogood capacity must not be negative");
+        }
+    }
+
+    public static SolverSettings defaults() {
+        return new SolverSettings(BacktrackingMode.TRAIL, BranchingStrategy.rows(), PropagationMode.SUB_SEGMENTS, 1, 2, 1, 0, RestartPolicy.none(), null);
+    }
+
+    public SolverSettings withBacktrackingMode(BacktrackingMode backtrackingMode) {
+        return new SolverSettings(backtrackingMode, branchingStrategy, propagationMode, parallelism, parallelSplitDepth, portfolioSize, nogoodCapacity, restartPolicy, statisticsListener);
+    }
+
+    public SolverSettings withBranchingStrategy(BranchingStrategy branchingStrategy) {
+        return new SolverSettings(backtrackingMode, branchingStrategy, propagationMode, parallelism, parallelSplitDepth, portfolioSize, nogoodCapacity, restartPolicy, statisticsListener);
+    }
+
+    public SolverSettings withPropagationMode(PropagationMode propagationMode) {
+        return new SolverSettings(backtrackingMode, branchingStrategy, propagationMode, parallelism, parallelSplitDepth, portfolioSize, nogoodCapacity, restartPolicy, statisticsListener);
+    }
+
+    // above 1 the first parallelSplitDepth levels are forked and the order of variants is not stable
+    public SolverSettings withParallelism(int parallelism) {
+        return new SolverSettings(backtrackingMode, branchingStrategy, propagationMode, parallelism, parallelSplitDepth, portfolioSize, nogoodCapacity, restartPolicy, statisticsListener);
+    }
+
+    public SolverSettings withParallelSplitDepth(int parallelSplitDepth) {
+        return new SolverSettings(backtrackingMode, branchingStrategy, propagationMode, parallelism, parallelSplitDepth, portfolioSize, nogoodCapacity, restartPolicy, statisticsListener);
+    }
+
+    // above 1 getFirstVariant races differently branched searches
+    public SolverSettings withPortfolioSize(int portfolioSize) {
+        return new SolverSettings(backtrackingMode, branchingStrategy, propagationMode, parallelism, parallelSplitDepth, portfolioSize, nogoodCapacity, restartPolicy, statisticsListener);
+    }
+
+    // 0 turns nogood learning off
+    public SolverSettings withNogoodCapacity(int nogoodCapacity) {
+        return new SolverSettings(backtrackingMode, branchingStrategy, propagationMode, parallelism, parallelSplitDepth, portfolioSize, nogoodCapacity, restartPolicy, statisticsListener);
+    }
+
+    public SolverSettings withRestartPolicy(RestartPolicy restartPolicy) {
+        return new SolverSettings(backtrackingMode, branchingStrategy, propagationMode, parallelism, parallelSplitDepth, portfolioSize, nogoodCapacity, restartPolicy, statisticsListener);
+    }
+
+    // null keeps statistics off, the listener is called on the thread that ran the solve
+    public SolverSettings withStatisticsListener(Consumer<SolverStatistics> statisticsListener) {
+        return new SolverSettings(backtrackingMode, branchingStrategy, propagationMode, parallelism, parallelSplitDepth, portfolioSize, nogoodCapacity, restartPolicy, statisticsListener);
+    }
+}
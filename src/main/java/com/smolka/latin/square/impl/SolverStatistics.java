@@ -0,0 +1,166 @@
+package com.smolka.latin.square.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// counters of one solve, shared by every matrix copy and thread of it; the solver only creates
+// statistics when a listener is configured, every counting site is a null check otherwise.
+// Propagation time is summed over threads, branching time is the rest of the search wall time
+public class SolverStatistics {
+
+    private final LongAdder nodes;
+
+    private final LongAdder backtracks;
+
+    private final LongAdder rowCandidates;
+
+    private final LongAdder rejectedRowCandidates;
+
+    private final LongAdder fixpointIterations;
+
+    private final LongAdder removedValues;
+
+    private final LongAdder matrixCopies;
+
+    private final LongAdder learnedNogoods;
+
+    private final LongAdder nogoodHits;
+
+    private final LongAdder restarts;
+
+    private final LongAdder propagationNanos;
+
+    private final AtomicInteger maxDepth;
+
+    private volatile long searchNanos;
+
+    public SolverStatistics() {
+        this.nodes = new LongAdder();
+        this.backtracks = new LongAdder();
+        this.rowCandidates = new LongAdder();
+        this.rejectedRowCandidates = new LongAdder();
+        this.fixpointIterations = new LongAdder();
+        this.removedValues = new LongAdder();
+        this.matrixCopies = new LongAdder();
+        this.learnedNogoods = new LongAdder();
+        this.nogoodHits = new LongAdder();
+        this.restarts = new LongAdder();
+        this.propagationNanos = new LongAdder();
+        this.maxDepth = new AtomicInteger();
+        this.searchNanos = 0;
+    }
+
+    public void countNode(int depth) {
+        nodes.increment();
+        maxDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    // an alternative that was rejected by propagation or by a learned nogood
+    public void countBacktrack() {
+        backtracks.increment();
+    }
+
+    public void countRowCandidate() {
+        rowCandidates.increment();
+    }
+
+    public void countRejectedRowCandidate() {
+        rejectedRowCandidates.increment();
+    }
+
+    // one segment revision taken from the propagation queue
+    public void countFixpointIteration() {
+        fixpointIterations.increment();
+    }
+
+    public void countRemovedValues(int count) {
+        removedValues.add(count);
+    }
+
+    public void countMatrixCopy() {
+        matrixCopies.increment();
+    }
+
+    public void countLearnedNogood() {
+        learnedNogoods.increment();
+    }
+
+    public void countNogoodHit() {
+        nogoodHits.increment();
+    }
+
+    public void countRestart() {
+        restarts.increment();
+    }
+
+    public void addPropagationNanos(long nanos) {
+        propagationNanos.add(nanos);
+    }
+
+    public void setSearchNanos(long searchNanos) {
+        this.searchNanos = searchNanos;
+    }
+
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+
+    public long getRowCandidates() {
+        return rowCandidates.sum();
+    }
+
+    public long getRejectedRowCandidates() {
+        return rejectedRowCandidates.sum();
+    }
+
+    public long getFixpointIterations() {
+        return fixpointIterations.sum();
+    }
+
+    public long getRemovedValues() {
+        return removedValues.sum();
+    }
+
+    public long getMatrixCopies() {
+        return matrixCopies.sum();
+    }
+
+    public long getLearnedNogoods() {
+        return learnedNogoods.sum();
+    }
+
+    public long getNogoodHits() {
+        return nogoodHits.sum();
+    }
+
+    public long getRestarts() {
+        return restarts.sum();
+    }
+
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    public long getPropagationNanos() {
+        return propagationNanos.sum();
+    }
+
+    public long getBranchingNanos() {
+        return Math.max(0, searchNanos - getPropagationNanos());
+    }
+
+    @Override
+    public String toString() {
+        return "SolverStatistics{nodes=%d, backtracks=%d, rowCandidates=%d, rejectedRowCandidates=%d, fixpointIterations=%d, removedValues=%d, matrixCopies=%d, learnedNogoods=%d, nogoodHits=%d, restarts=%d, maxDepth=%d, searchNanos=%d, propagationNanos=%d}"
+                .formatted(getNodes(), getBacktracks(), getRowCandidates(), getRejectedRowCandidates(), getFixpointIterations(),
+                        getRemovedValues(), getMatrixCopies(), getLearnedNogoods(), getNogoodHits(), getRestarts(), getMaxDepth(), getSearchNanos(), getPropagationNanos());
+    }
+}
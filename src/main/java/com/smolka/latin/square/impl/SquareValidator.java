@@ -0,0 +1,97 @@
+package com.smolka.latin.square.impl;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+// every row and then every column is scanned once with a bitmask of seen values, the scan stops
+// at the first repeated or foreign value; squares up to 64 keep the mask in a long
+public class SquareValidator {
+
+    private static final int EMPTY = 0;
+
+    // value of the cell, EMPTY for an empty one
+    @FunctionalInterface
+    private interface Cells {
+
+        int valueAt(int row, int column);
+    }
+
+    public boolean check(Integer[][] square) {
+        return isShapeValid(square.length, row -> square[row].length) && areLinesValid(square.length, boxedCells(square), true);
+    }
+
+    public boolean isInvalid(Integer[][] square) {
+        return !isShapeValid(square.length, row -> square[row].length) || !areLinesValid(square.length, boxedCells(square), false);
+    }
+
+    // 0 marks an empty cell
+    public boolean check(int[][] square) {
+        return isShapeValid(square.length, row -> square[row].length) && areLinesValid(square.length, (row, column) -> square[row][column], true);
+    }
+
+    public boolean isInvalid(int[][] square) {
+        return !isShapeValid(square.length, row -> square[row].length) || !areLinesValid(square.length, (row, column) -> square[row][column], false);
+    }
+
+    // a boxed value below 1 stays out of range instead of reading as empty
+    private Cells boxedCells(Integer[][] square) {
+        return (row, column) -> {
+            Integer value = square[row][column];
+            return value == null ? EMPTY : value < 1 ? -1 : value;
+        };
+    }
+
+    private boolean isShapeValid(int size, IntUnaryOperator rowLength) {
+        if (size == 0) {
+            return false;
+        }
+        for (int row = 0; row < size; row++) {
+            if (rowLength.applyAsInt(row) != size) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean areLinesValid(int size, Cells cells, boolean complete) {
+        long[] seenWords = size > Long.SIZE ? new long[(size + Long.SIZE - 1) / Long.SIZE] : null;
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int line = 0; line < size; line++) {
+                long seen = 0L;
+                if (seenWords != null) {
+                    Arrays.fill(seenWords, 0L);
+                }
+
+                for (int index = 0; index < size; index++) {
+                    int value = pass == 0 ? cells.valueAt(line, index) : cells.valueAt(index, line);
+                    if (value == EMPTY) {
+                        if (complete) {
+                            return false;
+                        }
+                        continue;
+                    }
+
+                    if (value < 1 || value > size) {
+                        return false;
+                    }
+                    long bit = 1L << (value - 1);
+                    if (seenWords == null) {
+                        if ((seen & bit) != 0L) {
+                            return false;
+                        }
+                        seen |= bit;
+                    } else {
+                        int word = (value - 1) >>> 6;
+                        if ((seenWords[word] & bit) != 0L) {
+                            return false;
+                        }
+                        seenWords[word] |= bit;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+}
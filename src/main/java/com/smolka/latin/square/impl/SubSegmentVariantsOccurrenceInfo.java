@@ -1,29 +1,57 @@
 package com.smolka.latin.square.impl;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+public class SubSegmentVariantsOccurrenceInfo {
 
-public class SubSegmentVariantsOccurrenceInfo<T> {
+    private final int wordsPerCell;
 
-    private final Map<Set<T>, Set<Integer>> variantsOccurrenceInfo;
+    private final long[] variants;
 
-    public SubSegmentVariantsOccurrenceInfo() {
-        this.variantsOccurrenceInfo = new HashMap<>();
+    private final int[] variantsSizes;
+
+    private final int[] groups;
+
+    private final int[] occurrences;
+
+    private int length;
+
+    public SubSegmentVariantsOccurrenceInfo(int capacity, int wordsPerCell) {
+        this.wordsPerCell = wordsPerCell;
+        this.variants = new long[capacity * wordsPerCell];
+        this.variantsSizes = new int[capacity];
+        this.groups = new int[capacity];
+        this.occurrences = new int[capacity];
+        this.length = 0;
     }
 
-    public void putOccurrenceInfo(Set<T> variants, Integer index) {
-        variantsOccurrenceInfo.putIfAbsent(variants, new HashSet<>());
-        variantsOccurrenceInfo.get(variants).add(index);
+    public void clear() {
+        length = 0;
     }
 
-    public boolean hasError() {
-        for (Map.Entry<Set<T>, Set<Integer>> variantOccurrenceEntry : variantsOccurrenceInfo.entrySet()) {
-            Set<T> variant = variantOccurrenceEntry.getKey();
-            Set<Integer> indices = variantOccurrenceEntry.getValue();
+    public void putOccurrenceInfo(long[] domains, int offset) {
+        int position = length++;
+        int variantsOffset = position * wordsPerCell;
+        int variantsSize = 0;
+        for (int word = 0; word < wordsPerCell; word++) {
+            variants[variantsOffset + word] = domains[offset + word];
+            variantsSize += Long.bitCount(domains[offset + word]);
+        }
+        variantsSizes[position] = variantsSize;
+        occurrences[position] = 0;
 
-            if (variant.size() < indices.size()) {
+        for (int leader = 0; leader < position; leader++) {
+            if (groups[leader] == leader && variantsSizes[leader] == variantsSize && sameVariants(leader, position)) {
+                groups[position] = leader;
+                occurrences[leader]++;
+                return;
+            }
+        }
+        groups[position] = position;
+        occurrences[position] = 1;
+    }
+
+    public boolean hasError() {
+        for (int position = 0; position < length; position++) {
+            if (groups[position] == position && variantsSizes[position] < occurrences[position]) {
                 return true;
             }
         }
@@ -31,17 +59,34 @@ public class SubSegmentVariantsOccurrenceInfo<T> {
         return false;
     }
 
-    public Map<Set<T>, Set<Integer>> getVariantsWithSizeOccurrenceEquality() {
-        Map<Set<T>, Set<Integer>> result = new HashMap<>();
-        for (Map.Entry<Set<T>, Set<Integer>> variantOccurrenceEntry : variantsOccurrenceInfo.entrySet()) {
-            Set<T> variant = variantOccurrenceEntry.getKey();
-            Set<Integer> indices = variantOccurrenceEntry.getValue();
+    public boolean hasSizeOccurrenceEquality(int position) {
+        return groups[position] == position && variantsSizes[position] == occurrences[position];
+    }
+
+    public int getGroup(int position) {
+        return groups[position];
+    }
+
+    public int getLength() {
+        return length;
+    }
 
-            if (variant.size() == indices.size()) {
-                result.put(variant, indices);
+    public long[] getVariants() {
+        return variants;
+    }
+
+    public int getVariantsOffset(int position) {
+        return position * wordsPerCell;
+    }
+
+    private boolean sameVariants(int first, int second) {
+        int firstOffset = first * wordsPerCell;
+        int secondOffset = second * wordsPerCell;
+        for (int word = 0; word < wordsPerCell; word++) {
+            if (variants[firstOffset + word] != variants[secondOffset + word]) {
+                return false;
             }
         }
-
-        return result;
+        return true;
     }
 }
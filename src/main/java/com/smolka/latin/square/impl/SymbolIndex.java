@@ -0,0 +1,51 @@
+package com.smolka.latin.square.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class SymbolIndex<T> {
+
+    private final List<T> symbols;
+
+    private final Map<T, Integer> indices;
+
+    @SuppressWarnings("unchecked")
+    public SymbolIndex(Set<T> allElements) {
+        if (allElements.isEmpty()) {
+            throw new RuntimeException("Symbols set is empty");
+        }
+
+        this.symbols = new ArrayList<>(allElements);
+        if (symbols.getFirst() instanceof Comparable<?>) {
+            symbols.sort((first, second) -> ((Comparable<T>) first).compareTo(second));
+        }
+
+        this.indices = new HashMap<>();
+        for (int index = 0; index < symbols.size(); index++) {
+            indices.put(symbols.get(index), index);
+        }
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    public boolean contains(T symbol) {
+        return indices.containsKey(symbol);
+    }
+
+    public int indexOf(T symbol) {
+        Integer index = indices.get(symbol);
+        if (index == null) {
+            throw new RuntimeException(String.format("Unknown symbol %s", symbol));
+        }
+        return index;
+    }
+
+    public T symbolAt(int index) {
+        return symbols.get(index);
+    }
+}
@@ -0,0 +1,359 @@
+package com.smolka.latin.square.impl;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.SolutionSink;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// symbols absent from the clues are interchangeable, and so are the rows without clues;
+// a completion is canonical when the free symbols follow in increasing order along row 0 and the
+// free rows (without row 0 if it orders the symbols) are sorted by their value in a column where every
+// other row is determined. Every orbit has exactly one canonical completion, so for the empty grid
+// these are the reduced squares with first row and first column in natural order
+public class SymmetryReducedEnumerator {
+
+    private final LatinSquare latinSquare;
+
+    public SymmetryReducedEnumerator() {
+        this(new LatinSquareImpl());
+    }
+
+    public SymmetryReducedEnumerator(LatinSquare latinSquare) {
+        this.latinSquare = latinSquare;
+    }
+
+    public void visitReducedVariants(Integer[][] square, SolutionSink sink) {
+        Symmetries symmetries = Symmetries.of(square);
+        boolean[] stopped = { false };
+        SolutionSink stoppingSink = (grid, size) -> {
+            if (!sink.accept(grid, size)) {
+                stopped[0] = true;
+                return false;
+            }
+            return true;
+        };
+
+        Integer[][] canonicalSquare = copySquare(square);
+        if (symmetries.symbols().length == 0) {
+            visitOrderedRows(canonicalSquare, symmetries, stoppingSink);
+            return;
+        }
+
+        boolean[] rowSymbols = new boolean[square.length + 1];
+        for (Integer value : square[0]) {
+            if (value != null) {
+                rowSymbols[value] = true;
+            }
+        }
+        fillFirstRow(canonicalSquare, symmetries, 0, 0, rowSymbols, stoppingSink, stopped);
+    }
+
+    public long countReducedVariants(Integer[][] square) {
+        long[] count = { 0 };
+        visitReducedVariants(square, (grid, size) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    // number of completions represented by every canonical completion of the square
+    public long getOrbitSize(Integer[][] square) {
+        Symmetries symmetries = Symmetries.of(square);
+        return Math.multiplyExact(factorial(symmetries.symbols().length), factorial(symmetries.rows().length));
+    }
+
+    // lazily walks the orbit of a canonical completion, starting with the completion itself
+    public Iterator<int[][]> expandOrbit(Integer[][] square, int[][] reducedVariant) {
+        Symmetries symmetries = Symmetries.of(square);
+        int size = square.length;
+        int[] reducedGrid = new int[size * size];
+        for (int row = 0; row < size; row++) {
+            System.arraycopy(reducedVariant[row], 0, reducedGrid, row * size, size);
+        }
+
+        return new Iterator<>() {
+
+            private final OrbitCursor cursor = new OrbitCursor(symmetries, size);
+
+            private final int[] grid = new int[size * size];
+
+            private boolean hasNext = true;
+
+            @Override
+            public boolean hasNext() {
+                return hasNext;
+            }
+
+            @Override
+            public int[][] next() {
+                if (!hasNext) {
+                    throw new NoSuchElementException();
+                }
+
+                cursor.write(reducedGrid, grid);
+                hasNext = cursor.advance();
+
+                int[][] result = new int[size][size];
+                for (int row = 0; row < size; row++) {
+                    System.arraycopy(grid, row * size, result[row], 0, size);
+                }
+                return result;
+            }
+        };
+    }
+
+    // every completion of the square, found as canonical completions expanded over their orbits
+    public void visitVariants(Integer[][] square, SolutionSink sink) {
+        Symmetries symmetries = Symmetries.of(square);
+        int size = square.length;
+        int[] grid = new int[size * size];
+
+        visitReducedVariants(square, (reducedGrid, reducedSize) -> {
+            OrbitCursor cursor = new OrbitCursor(symmetries, size);
+            do {
+                cursor.write(reducedGrid, grid);
+                if (!sink.accept(grid, size)) {
+                    return false;
+                }
+            } while (cursor.advance());
+            return true;
+        });
+    }
+
+    // free symbols are placed along row 0 in increasing order, the other missing symbols of row 0 anywhere
+    private void fillFirstRow(Integer[][] canonicalSquare,
+                              Symmetries symmetries,
+                              int column,
+                              int nextSymbolPosition,
+                              boolean[] rowSymbols,
+                              SolutionSink sink,
+                              boolean[] stopped) {
+        int size = canonicalSquare.length;
+        if (column == size) {
+            visitOrderedRows(copySquare(canonicalSquare), symmetries, sink);
+            return;
+        }
+        if (canonicalSquare[0][column] != null) {
+            fillFirstRow(canonicalSquare, symmetries, column + 1, nextSymbolPosition, rowSymbols, sink, stopped);
+            return;
+        }
+
+        int[] freeSymbols = symmetries.symbols();
+        for (int value = 1; value <= size && !stopped[0]; value++) {
+            if (rowSymbols[value] || isInColumn(canonicalSquare, column, value)) {
+                continue;
+            }
+
+            boolean isFreeSymbol = symmetries.isFreeSymbol(value);
+            if (isFreeSymbol && (nextSymbolPosition == freeSymbols.length || freeSymbols[nextSymbolPosition] != value)) {
+                continue;
+            }
+
+            canonicalSquare[0][column] = value;
+            rowSymbols[value] = true;
+            fillFirstRow(canonicalSquare, symmetries, column + 1, isFreeSymbol ? nextSymbolPosition + 1 : nextSymbolPosition, rowSymbols, sink, stopped);
+            rowSymbols[value] = false;
+            canonicalSquare[0][column] = null;
+        }
+    }
+
+    private void visitOrderedRows(Integer[][] canonicalSquare, Symmetries symmetries, SolutionSink sink) {
+        int[] freeRows = symmetries.rows();
+        if (freeRows.length > 0) {
+            int size = canonicalSquare.length;
+            int column = symmetries.rowOrderColumn();
+            boolean[] columnSymbols = new boolean[size + 1];
+            for (int row = 0; row < size; row++) {
+                if (canonicalSquare[row][column] != null) {
+                    columnSymbols[canonicalSquare[row][column]] = true;
+                }
+            }
+
+            int position = 0;
+            for (int value = 1; value <= size; value++) {
+                if (!columnSymbols[value]) {
+                    canonicalSquare[freeRows[position++]][column] = value;
+                }
+            }
+        }
+
+        latinSquare.visitVariants(canonicalSquare, sink);
+    }
+
+    private boolean isInColumn(Integer[][] square, int column, int value) {
+        for (Integer[] row : square) {
+            if (row[column] != null && row[column] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Integer[][] copySquare(Integer[][] square) {
+        Integer[][] result = new Integer[square.length][];
+        for (int row = 0; row < square.length; row++) {
+            result[row] = square[row].clone();
+        }
+        return result;
+    }
+
+    private static long factorial(int value) {
+        long result = 1;
+        for (int factor = 2; factor <= value; factor++) {
+            result = Math.multiplyExact(result, factor);
+        }
+        return result;
+    }
+
+    // symbols are the values absent from the clues in increasing order, rows are the interchangeable
+    // rows ordered by rowOrderColumn, empty when no such column exists
+    private record Symmetries(int[] symbols, int[] rows, int rowOrderColumn) {
+
+        public static Symmetries of(Integer[][] square) {
+            int size = square.length;
+            boolean[] usedSymbols = new boolean[size + 1];
+            boolean[] clueRows = new boolean[size];
+            for (int row = 0; row < size; row++) {
+                for (Integer value : square[row]) {
+                    if (value != null) {
+                        usedSymbols[value] = true;
+                        clueRows[row] = true;
+                    }
+                }
+            }
+
+            List<Integer> freeSymbols = new ArrayList<>();
+            for (int value = 1; value <= size; value++) {
+                if (!usedSymbols[value]) {
+                    freeSymbols.add(value);
+                }
+            }
+            boolean withSymbolOrder = !freeSymbols.isEmpty();
+
+            List<Integer> freeRows = new ArrayList<>();
+            for (int row = withSymbolOrder ? 1 : 0; row < size; row++) {
+                if (!clueRows[row]) {
+                    freeRows.add(row);
+                }
+            }
+
+            int rowOrderColumn = -1;
+            for (int column = 0; column < size && freeRows.size() > 1 && rowOrderColumn < 0; column++) {
+                boolean determined = true;
+                for (int row = 0; row < size && determined; row++) {
+                    boolean filledByOrder = row == 0 && withSymbolOrder;
+                    determined = freeRows.contains(row) || filledByOrder || square[row][column] != null;
+                }
+                if (determined) {
+                    rowOrderColumn = column;
+                }
+            }
+
+            int[] rows = rowOrderColumn < 0 ? new int[0] : freeRows.stream().mapToInt(Integer::intValue).toArray();
+            return new Symmetries(freeSymbols.stream().mapToInt(Integer::intValue).toArray(), rows, rowOrderColumn);
+        }
+
+        public boolean isFreeSymbol(int value) {
+            for (int symbol : symbols) {
+                if (symbol == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // walks symbol permutations of the free symbols times permutations of the free rows
+    private static class OrbitCursor {
+
+        private final Symmetries symmetries;
+
+        private final int size;
+
+        private final int[] symbolPermutation;
+
+        private final int[] rowPermutation;
+
+        private final int[] symbolMap;
+
+        private final int[] rowMap;
+
+        public OrbitCursor(Symmetries symmetries, int size) {
+            this.symmetries = symmetries;
+            this.size = size;
+            this.symbolPermutation = identity(symmetries.symbols().length);
+            this.rowPermutation = identity(symmetries.rows().length);
+            this.symbolMap = new int[size + 1];
+            this.rowMap = new int[size];
+        }
+
+        public boolean advance() {
+            if (nextPermutation(rowPermutation)) {
+                return true;
+            }
+            return nextPermutation(symbolPermutation);
+        }
+
+        public void write(int[] reducedGrid, int[] target) {
+            for (int value = 0; value <= size; value++) {
+                symbolMap[value] = value;
+            }
+            int[] symbols = symmetries.symbols();
+            for (int position = 0; position < symbols.length; position++) {
+                symbolMap[symbols[position]] = symbols[symbolPermutation[position]];
+            }
+
+            for (int row = 0; row < size; row++) {
+                rowMap[row] = row;
+            }
+            int[] rows = symmetries.rows();
+            for (int position = 0; position < rows.length; position++) {
+                rowMap[rows[position]] = rows[rowPermutation[position]];
+            }
+
+            for (int row = 0; row < size; row++) {
+                int targetOffset = rowMap[row] * size;
+                for (int column = 0; column < size; column++) {
+                    target[targetOffset + column] = symbolMap[reducedGrid[row * size + column]];
+                }
+            }
+        }
+
+        private static int[] identity(int length) {
+            int[] result = new int[length];
+            for (int index = 0; index < length; index++) {
+                result[index] = index;
+            }
+            return result;
+        }
+
+        // lexicographic successor, the last permutation is turned back into the identity
+        private static boolean nextPermutation(int[] permutation) {
+            int pivot = permutation.length - 2;
+            while (pivot >= 0 && permutation[pivot] >= permutation[pivot + 1]) {
+                pivot--;
+            }
+            if (pivot >= 0) {
+                int successor = permutation.length - 1;
+                while (permutation[successor] <= permutation[pivot]) {
+                    successor--;
+                }
+                swap(permutation, pivot, successor);
+            }
+            for (int left = pivot + 1, right = permutation.length - 1; left < right; left++, right--) {
+                swap(permutation, left, right);
+            }
+            return pivot >= 0;
+        }
+
+        private static void swap(int[] array, int first, int second) {
+            int value = array[first];
+            array[first] = array[second];
+            array[second] = value;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.smolka.latin.square.impl;
+
+public interface VariantsDomain {
+
+    static VariantsDomain empty(int capacity) {
+        if (capacity <= LongVariantsDomain.CAPACITY) {
+            return new LongVariantsDomain();
+        }
+        return new WordsVariantsDomain(capacity);
+    }
+
+    static VariantsDomain full(int capacity) {
+        VariantsDomain result = empty(capacity);
+        for (int index = 0; index < capacity; index++) {
+            result.add(index);
+        }
+        return result;
+    }
+
+    int size();
+
+    boolean isEmpty();
+
+    boolean contains(int index);
+
+    void add(int index);
+
+    boolean remove(int index);
+
+    boolean removeAll(VariantsDomain other);
+
+    void reset(int index);
+
+    void reset(VariantsDomain other);
+
+    int first();
+
+    int next(int fromIndex);
+
+    VariantsDomain copy();
+}
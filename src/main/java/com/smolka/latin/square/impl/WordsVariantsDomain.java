@@ -0,0 +1,138 @@
+package com.smolka.latin.square.impl;
+
+import java.util.Arrays;
+
+public class WordsVariantsDomain implements VariantsDomain {
+
+    private final long[] words;
+
+    public WordsVariantsDomain(int capacity) {
+        this.words = new long[(capacity + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    private WordsVariantsDomain(long[] words) {
+        this.words = words;
+    }
+
+    @Override
+    public int size() {
+        int result = 0;
+        for (long word : words) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0L;
+    }
+
+    @Override
+    public void add(int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    @Override
+    public boolean remove(int index) {
+        long old = words[index >>> 6];
+        words[index >>> 6] = old & ~(1L << index);
+        return old != words[index >>> 6];
+    }
+
+    @Override
+    public boolean removeAll(VariantsDomain other) {
+        boolean wasChanges = false;
+        if (other instanceof WordsVariantsDomain wordsOther) {
+            int length = Math.min(words.length, wordsOther.words.length);
+            for (int wordIndex = 0; wordIndex < length; wordIndex++) {
+                long old = words[wordIndex];
+                words[wordIndex] = old & ~wordsOther.words[wordIndex];
+                if (old != words[wordIndex]) {
+                    wasChanges = true;
+                }
+            }
+            return wasChanges;
+        }
+
+        for (int index = other.first(); index >= 0; index = other.next(index + 1)) {
+            if (index < words.length * Long.SIZE && remove(index)) {
+                wasChanges = true;
+            }
+        }
+        return wasChanges;
+    }
+
+    @Override
+    public void reset(int index) {
+        Arrays.fill(words, 0L);
+        add(index);
+    }
+
+    @Override
+    public void reset(VariantsDomain other) {
+        if (other instanceof WordsVariantsDomain wordsOther && wordsOther.words.length == words.length) {
+            System.arraycopy(wordsOther.words, 0, words, 0, words.length);
+            return;
+        }
+        Arrays.fill(words, 0L);
+        for (int index = other.first(); index >= 0; index = other.next(index + 1)) {
+            add(index);
+        }
+    }
+
+    @Override
+    public int first() {
+        return next(0);
+    }
+
+    @Override
+    public int next(int fromIndex) {
+        int wordIndex = fromIndex >>> 6;
+        if (wordIndex >= words.length) {
+            return -1;
+        }
+        long word = words[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0L) {
+                return wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    @Override
+    public WordsVariantsDomain copy() {
+        return new WordsVariantsDomain(words.clone());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        WordsVariantsDomain that = (WordsVariantsDomain) o;
+        return Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(words);
+    }
+}
@@ -0,0 +1,91 @@
+package com.smolka;
+
+import com.smolka.latin.square.impl.BatchSquareValidator;
+import com.smolka.latin.square.impl.LatinSquareImpl;
+import com.smolka.latin.square.impl.SquareValidator;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class BatchSquareValidatorTest {
+
+    @Test
+    public void test_batchValidatorsAgreeWithSquareValidator() {
+        SquareValidator squareValidator = new SquareValidator();
+        Random random = new Random(17);
+
+        for (BatchSquareValidator batchValidator : List.of(BatchSquareValidator.create(), BatchSquareValidator.scalar())) {
+            for (int size : List.of(1, 2, 5, 8, 9, 16, 17, 31, 32, 33, 70)) {
+                int count = 40;
+                int[] squares = new int[count * size * size];
+                boolean[] expectedResult = new boolean[count];
+                for (int square = 0; square < count; square++) {
+                    int[][] field = randomSquare(size, random);
+                    if (square % 2 == 1) {
+                        int row = random.nextInt(size);
+                        int column = random.nextInt(size);
+                        field[row][column] = square % 4 == 1 ? random.nextInt(size + 2) : field[row][(column + 1) % size];
+                    }
+                    for (int row = 0; row < size; row++) {
+                        System.arraycopy(field[row], 0, squares, (square * size + row) * size, size);
+                    }
+                    expectedResult[square] = squareValidator.check(field);
+                }
+
+                boolean[] result = batchValidator.checkAll(squares, size);
+                assert result.length == count;
+                for (int square = 0; square < count; square++) {
+                    assert result[square] == expectedResult[square];
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_checkingAllSquaresOfBuffer() {
+        int[] squares = {
+                1, 2, 3, 3, 1, 2, 2, 3, 1,
+                1, 2, 3, 1, 3, 2, 2, 1, 3,
+                2, 3, 1, 1, 2, 3, 3, 1, 2
+        };
+
+        boolean[] result = new LatinSquareImpl().checkAll(squares, 3);
+        assert result.length == 3;
+        assert result[0] && !result[1] && result[2];
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_partialSquareInBufferIsRejected() {
+        new LatinSquareImpl().checkAll(new int[10], 3);
+    }
+
+    // cyclic square with shuffled rows, columns and symbols
+    private int[][] randomSquare(int size, Random random) {
+        int[] rows = permutation(size, random);
+        int[] columns = permutation(size, random);
+        int[] symbols = permutation(size, random);
+
+        int[][] result = new int[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                result[rows[row]][columns[column]] = symbols[(row + column) % size] + 1;
+            }
+        }
+        return result;
+    }
+
+    private int[] permutation(int size, Random random) {
+        int[] result = new int[size];
+        for (int index = 0; index < size; index++) {
+            result[index] = index;
+        }
+        for (int index = size - 1; index > 0; index--) {
+            int other = random.nextInt(index + 1);
+            int value = result[index];
+            result[index] = result[other];
+            result[other] = value;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,156 @@
+package com.smolka;
+
+import com.smolka.latin.square.SolveOptions;
+import com.smolka.latin.square.SolveResult;
+import com.smolka.latin.square.impl.CachingLatinSquare;
+import com.smolka.latin.square.impl.DancingLinksLatinSquare;
+import com.smolka.latin.square.impl.IsotopyCanonicalForm;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class CachingLatinSquareTest {
+
+    private static final Integer[][] EVEREST = TestSquares.everest();
+
+    @Test
+    public void test_isotopicSquaresShareCanonicalForm() {
+        Integer[][] symmetricField = {
+                { 1, 2, null, null, null },
+                { 2, 1, null, null, null },
+                { null, null, null, null, null },
+                { null, null, null, null, null },
+                { null, null, null, null, null }
+        };
+        Integer[][] otherField = {
+                { 1, 2, null, null, null },
+                { null, 1, null, null, null },
+                { null, null, null, null, null },
+                { null, null, null, null, null },
+                { null, null, null, null, null }
+        };
+
+        Random random = new Random(7);
+        for (Integer[][] field : List.of(EVEREST, symmetricField, otherField, new Integer[4][4])) {
+            IsotopyCanonicalForm form = IsotopyCanonicalForm.of(field);
+            for (int attempt = 0; attempt < 20; attempt++) {
+                assert IsotopyCanonicalForm.of(permute(field, random)).equals(form);
+            }
+        }
+
+        assert !IsotopyCanonicalForm.of(symmetricField).equals(IsotopyCanonicalForm.of(otherField));
+    }
+
+    @Test
+    public void test_permutedSquaresAreAnsweredFromCache() {
+        CachingLatinSquare latinSquare = new CachingLatinSquare(16);
+        assert latinSquare.getFirstVariant(EVEREST) != null;
+
+        Random random = new Random(11);
+        for (int attempt = 0; attempt < 10; attempt++) {
+            Integer[][] field = permute(EVEREST, random);
+            Integer[][] result = latinSquare.getFirstVariant(field);
+            assert result != null;
+            assert latinSquare.check(result);
+            assertKeepsClues(field, result);
+        }
+
+        SolveResult result = latinSquare.getFirstVariant(permute(EVEREST, random), SolveOptions.unlimited().withNodeBudget(1));
+        assert result.isComplete();
+        assert latinSquare.check(result.getFirstVariant());
+
+        assert latinSquare.getSize() == 1;
+        assert latinSquare.getMissesCount() == 1;
+        assert latinSquare.getHitsCount() == 11;
+        assert latinSquare.getHitRate() == 11.0 / 12;
+    }
+
+    @Test
+    public void test_squaresWithoutCompletionsAreCached() {
+        Integer[][] field = {
+                { 1, null, null },
+                { null, 2, null },
+                { null, null, 3 }
+        };
+        Integer[][] permutedField = {
+                { null, 3, null },
+                { 2, null, null },
+                { null, null, 1 }
+        };
+
+        CachingLatinSquare latinSquare = new CachingLatinSquare(new DancingLinksLatinSquare(), 4);
+        assert latinSquare.getFirstVariant(field) != null;
+        assert latinSquare.getFirstVariant(permutedField) != null;
+
+        Integer[][] blockedField = {
+                { 1, 2, null },
+                { null, null, 3 },
+                { null, null, null }
+        };
+        assert latinSquare.getFirstVariant(blockedField) == null;
+        assert latinSquare.getFirstVariant(new Integer[][] { { null, null, 1 }, { null, null, null }, { 2, 3, null } }) == null;
+        assert latinSquare.getHitsCount() == 2;
+    }
+
+    @Test
+    public void test_leastRecentlyUsedFormIsEvicted() {
+        Integer[][] firstField = new Integer[5][5];
+        firstField[0][0] = 1;
+        Integer[][] secondField = new Integer[5][5];
+        secondField[0][0] = 1;
+        secondField[0][1] = 2;
+        Integer[][] thirdField = new Integer[5][5];
+        thirdField[0][0] = 1;
+        thirdField[1][1] = 1;
+
+        CachingLatinSquare latinSquare = new CachingLatinSquare(2);
+        latinSquare.getFirstVariant(firstField);
+        latinSquare.getFirstVariant(secondField);
+        latinSquare.getFirstVariant(firstField);
+        latinSquare.getFirstVariant(thirdField);
+        assert latinSquare.getSize() == 2;
+        assert latinSquare.getEvictionsCount() == 1;
+
+        latinSquare.getFirstVariant(firstField);
+        assert latinSquare.getHitsCount() == 2;
+        latinSquare.getFirstVariant(secondField);
+        assert latinSquare.getHitsCount() == 2;
+        assert latinSquare.getMissesCount() == 4;
+    }
+
+    private static Integer[][] permute(Integer[][] field, Random random) {
+        int size = field.length;
+        List<Integer> rows = shuffledRange(size, random);
+        List<Integer> columns = shuffledRange(size, random);
+        List<Integer> symbols = shuffledRange(size, random);
+
+        Integer[][] result = new Integer[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                Integer value = field[row][column];
+                result[rows.get(row)][columns.get(column)] = value == null ? null : symbols.get(value - 1) + 1;
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> shuffledRange(int size, Random random) {
+        List<Integer> result = new ArrayList<>();
+        for (int index = 0; index < size; index++) {
+            result.add(index);
+        }
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    private static void assertKeepsClues(Integer[][] field, Integer[][] result) {
+        for (int row = 0; row < field.length; row++) {
+            for (int column = 0; column < field.length; column++) {
+                assert field[row][column] == null || field[row][column].equals(result[row][column]);
+            }
+        }
+    }
+}
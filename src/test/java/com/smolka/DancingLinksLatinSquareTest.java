@@ -0,0 +1,46 @@
+package com.smolka;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.impl.DancingLinksLatinSquare;
+import com.smolka.latin.square.impl.LatinSquareImpl;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class DancingLinksLatinSquareTest extends LatinSquareTest {
+
+    @Override
+    protected LatinSquare createLatinSquare() {
+        return new DancingLinksLatinSquare();
+    }
+
+    @Test
+    public void test_findingAllVariantsLikeSelectionMatrixEngine() {
+        Integer[][] field = TestSquares.fiveByFive();
+
+        int limit = 100000;
+
+        Set<String> dancingLinksResult = createLatinSquare().getVariantsWithLimit(field, limit).stream()
+                .map(Arrays::deepToString)
+                .collect(Collectors.toSet());
+        Set<String> selectionMatrixResult = new LatinSquareImpl().getVariantsWithLimit(field, limit).stream()
+                .map(Arrays::deepToString)
+                .collect(Collectors.toSet());
+
+        assert dancingLinksResult.size() == 176;
+        assert dancingLinksResult.equals(selectionMatrixResult);
+    }
+
+    @Test
+    public void test_findingFirstInfeasible() {
+        Integer[][] field = {
+                { 1, null, null },
+                { null, 1, null },
+                { null, null, 2 }
+        };
+
+        assert createLatinSquare().getFirstVariant(field) == null;
+    }
+}
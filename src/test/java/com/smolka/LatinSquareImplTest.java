@@ -0,0 +1,400 @@
+package com.smolka;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.SolveOptions;
+import com.smolka.latin.square.SolveResult;
+import com.smolka.latin.square.SolveStatus;
+import com.smolka.latin.square.impl.BacktrackingMode;
+import com.smolka.latin.square.impl.Branch;
+import com.smolka.latin.square.impl.BranchingStrategy;
+import com.smolka.latin.square.impl.LatinSquareImpl;
+import com.smolka.latin.square.impl.RestartPolicy;
+import com.smolka.latin.square.impl.SelectionMatrix;
+import com.smolka.latin.square.impl.SolverSettings;
+import com.smolka.latin.square.impl.SolverStatistics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+public class LatinSquareImplTest extends LatinSquareTest {
+
+    private static final int LIMIT = 100000;
+
+    @Override
+    protected LatinSquare createLatinSquare() {
+        return new LatinSquareImpl();
+    }
+
+    @Test
+    public void test_trailAndCopyModesFindSameVariants() {
+        for (BacktrackingMode backtrackingMode : BacktrackingMode.values()) {
+            assertSameVariants(SolverSettings.defaults().withBacktrackingMode(backtrackingMode));
+        }
+
+        // the trail undoes branches in place, so the whole enumeration copies no matrix
+        List<SolverStatistics> reported = new ArrayList<>();
+        LatinSquareImpl latinSquare = new LatinSquareImpl(SolverSettings.defaults().withBacktrackingMode(BacktrackingMode.TRAIL).withStatisticsListener(reported::add));
+        latinSquare.getVariantsWithLimit(TestSquares.fiveByFive(), LIMIT);
+        assert reported.getFirst().getNodes() > 1;
+        assert reported.getFirst().getMatrixCopies() == 0;
+    }
+
+    @Test
+    public void test_findingFirstEverestWithCellBranching() {
+        Integer[][] field = TestSquares.everest();
+
+        for (BranchingStrategy branchingStrategy : List.of(BranchingStrategy.minimumVariantsCell(), BranchingStrategy.minimumVariantsCellWithDegree())) {
+            LatinSquareImpl latinSquare = new LatinSquareImpl(SolverSettings.defaults().withBranchingStrategy(branchingStrategy));
+
+            Integer[][] result = latinSquare.getFirstVariant(field);
+            assert result != null;
+            assert latinSquare.check(result);
+        }
+    }
+
+    @Test
+    public void test_branchingStrategiesFindSameVariants() {
+        for (BranchingStrategy branchingStrategy : List.of(BranchingStrategy.minimumVariantsCell(), BranchingStrategy.minimumVariantsCellWithDegree())) {
+            assertSameVariants(SolverSettings.defaults().withBranchingStrategy(branchingStrategy));
+        }
+
+        // a cell branch has one alternative per value of an open cell with the fewest values
+        SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(TestSquares.fiveByFive(), Set.of(1, 2, 3, 4, 5), Integer.class);
+        int minVariantsSize = Integer.MAX_VALUE;
+        for (int row = 0; row < 5; row++) {
+            for (int column = 0; column < 5; column++) {
+                int variantsSize = selectionMatrix.getVariantsSize(row, column);
+                if (variantsSize > 1) {
+                    minVariantsSize = Math.min(minVariantsSize, variantsSize);
+                }
+            }
+        }
+
+        for (BranchingStrategy branchingStrategy : List.of(BranchingStrategy.minimumVariantsCell(), BranchingStrategy.minimumVariantsCellWithDegree())) {
+            int[] alternativesCount = { 0 };
+            branchingStrategy.select(selectionMatrix).forEachAlternative(alternative -> {
+                alternativesCount[0]++;
+                return false;
+            });
+            assert alternativesCount[0] == minVariantsSize;
+        }
+    }
+
+    @Test
+    public void test_parallelModeFindsSameVariants() {
+        for (BranchingStrategy branchingStrategy : List.of(BranchingStrategy.rows(), BranchingStrategy.minimumVariantsCell())) {
+            assertSameVariants(SolverSettings.defaults()
+                    .withBranchingStrategy(branchingStrategy)
+                    .withParallelism(4)
+                    .withParallelSplitDepth(3));
+        }
+
+        // branches below the root are searched by fork/join workers
+        AtomicBoolean selectedInPool = new AtomicBoolean();
+        BranchingStrategy recordingStrategy = new BranchingStrategy() {
+
+            @Override
+            public <T> Branch<T> select(SelectionMatrix<T> selectionMatrix) {
+                if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+                    selectedInPool.set(true);
+                }
+                return BranchingStrategy.rows().select(selectionMatrix);
+            }
+
+            @Override
+            public BranchingStrategy randomized(long seed) {
+                return this;
+            }
+        };
+        new LatinSquareImpl(SolverSettings.defaults().withBranchingStrategy(recordingStrategy).withParallelism(4)).getVariantsWithLimit(TestSquares.fiveByFive(), LIMIT);
+        assert selectedInPool.get();
+    }
+
+    @Test
+    public void test_parallelModeStopsAtLimit() {
+        Integer[][] field = new Integer[7][7];
+
+        LatinSquare latinSquare = new LatinSquareImpl(SolverSettings.defaults().withParallelism(8));
+        List<Integer[][]> result = latinSquare.getVariantsWithLimit(field, 5000);
+
+        assert result.size() == 5000;
+        assert result.stream().map(Arrays::deepToString).collect(Collectors.toSet()).size() == 5000;
+        assert result.stream().allMatch(latinSquare::check);
+    }
+
+    @Test
+    public void test_findingFirstEverestWithPortfolio() {
+        Integer[][] field = TestSquares.everest();
+
+        LatinSquareImpl latinSquare = new LatinSquareImpl(SolverSettings.defaults().withPortfolioSize(4));
+
+        Integer[][] result = latinSquare.getFirstVariant(field);
+        assert result != null;
+        assert latinSquare.check(result);
+        for (int row = 0; row < field.length; row++) {
+            for (int column = 0; column < field.length; column++) {
+                assert field[row][column] == null || field[row][column].equals(result[row][column]);
+            }
+        }
+    }
+
+    @Test
+    public void test_randomizedStrategiesFindSameVariants() {
+        Integer[][] field = TestSquares.fiveByFive();
+
+        for (BranchingStrategy branchingStrategy : List.of(BranchingStrategy.randomizedRows(7), BranchingStrategy.randomizedMinimumVariantsCell(7), BranchingStrategy.randomizedMinimumVariantsCellWithDegree(7))) {
+            assertSameVariants(SolverSettings.defaults().withBranchingStrategy(branchingStrategy));
+        }
+
+        // a seed fixes the order of the variants, another seed changes it
+        List<String> seededOrder = variantsOrder(BranchingStrategy.randomizedRows(7));
+        assert seededOrder.equals(variantsOrder(BranchingStrategy.randomizedRows(7)));
+        assert !seededOrder.equals(variantsOrder(BranchingStrategy.randomizedRows(8)));
+        assert !seededOrder.equals(variantsOrder(BranchingStrategy.rows()));
+
+        // with a cutoff of one node everest is only solved after restarts
+        List<SolverStatistics> reported = new ArrayList<>();
+        Integer[][] result = new LatinSquareImpl(SolverSettings.defaults()
+                .withRestartPolicy(RestartPolicy.luby(1, 11))
+                .withStatisticsListener(reported::add)).getFirstVariant(TestSquares.everest());
+        assert result != null;
+        assert reported.getFirst().getRestarts() > 0;
+
+        reported.clear();
+        new LatinSquareImpl(SolverSettings.defaults().withStatisticsListener(reported::add)).getFirstVariant(TestSquares.everest());
+        assert reported.getFirst().getRestarts() == 0;
+    }
+
+    @Test
+    public void test_nogoodLearningFindsSameVariants() {
+        Integer[][] field = TestSquares.fiveByFive();
+        long expectedCount = new LatinSquareImpl().countCompletions(field);
+
+        for (BacktrackingMode backtrackingMode : BacktrackingMode.values()) {
+            for (BranchingStrategy branchingStrategy : List.of(BranchingStrategy.rows(), BranchingStrategy.minimumVariantsCell())) {
+                SolverSettings settings = SolverSettings.defaults()
+                        .withBacktrackingMode(backtrackingMode)
+                        .withBranchingStrategy(branchingStrategy)
+                        .withNogoodCapacity(64);
+                assertSameVariants(settings);
+                assert new LatinSquareImpl(settings).countCompletions(field) == expectedCount;
+            }
+        }
+
+        // everest rejects row candidates on the way, each rejection is learned only when the store is on
+        for (int nogoodCapacity : new int[] { 0, 1024 }) {
+            List<SolverStatistics> reported = new ArrayList<>();
+            new LatinSquareImpl(SolverSettings.defaults().withNogoodCapacity(nogoodCapacity).withStatisticsListener(reported::add))
+                    .getFirstVariant(TestSquares.everest());
+            SolverStatistics statistics = reported.getFirst();
+            assert statistics.getBacktracks() > 0;
+            assert statistics.getLearnedNogoods() == (nogoodCapacity == 0 ? 0 : statistics.getBacktracks());
+        }
+    }
+
+    @Test
+    public void test_findingFirstEverestWithNogoodLearning() {
+        Integer[][] field = TestSquares.everest();
+
+        for (BranchingStrategy branchingStrategy : List.of(BranchingStrategy.rows(), BranchingStrategy.minimumVariantsCellWithDegree())) {
+            LatinSquareImpl latinSquare = new LatinSquareImpl(SolverSettings.defaults().withBranchingStrategy(branchingStrategy).withNogoodCapacity(1024));
+
+            Integer[][] result = latinSquare.getFirstVariant(field);
+            assert result != null;
+            assert latinSquare.check(result);
+        }
+    }
+
+    @Test
+    public void test_findingFirstEverestWithRestarts() {
+        Integer[][] field = TestSquares.everest();
+
+        List<RestartPolicy> restartPolicies = List.of(
+                RestartPolicy.luby(4, 11),
+                RestartPolicy.geometric(4, 1.5, 11),
+                RestartPolicy.luby(4, 11).withKeepNogoods(true)
+        );
+        for (BranchingStrategy branchingStrategy : List.of(BranchingStrategy.rows(), BranchingStrategy.minimumVariantsCellWithDegree())) {
+            for (RestartPolicy restartPolicy : restartPolicies) {
+                SolverSettings settings = SolverSettings.defaults()
+                        .withBranchingStrategy(branchingStrategy)
+                        .withNogoodCapacity(256)
+                        .withRestartPolicy(restartPolicy);
+                LatinSquareImpl latinSquare = new LatinSquareImpl(settings);
+
+                Integer[][] result = latinSquare.getFirstVariant(field);
+                assert result != null;
+                assert latinSquare.check(result);
+                for (int row = 0; row < field.length; row++) {
+                    for (int column = 0; column < field.length; column++) {
+                        assert field[row][column] == null || field[row][column].equals(result[row][column]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_restartCutoffsFollowSchedule() {
+        RestartPolicy lubyPolicy = RestartPolicy.luby(10, 0);
+        long[] expectedLuby = { 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8 };
+        for (int run = 0; run < expectedLuby.length; run++) {
+            assert lubyPolicy.getCutoff(run) == 10 * expectedLuby[run];
+        }
+
+        RestartPolicy geometricPolicy = RestartPolicy.geometric(10, 2.0, 0);
+        assert geometricPolicy.getCutoff(0) == 10;
+        assert geometricPolicy.getCutoff(3) == 80;
+        assert geometricPolicy.getCutoff(100) == Long.MAX_VALUE;
+        assert !RestartPolicy.none().isEnabled();
+    }
+
+    @Test
+    public void test_solveBudgetsCutOffRestartsAndPortfolio() {
+        Integer[][] field = new Integer[9][9];
+        field[0][0] = 1;
+
+        List<SolverSettings> settingsList = List.of(
+                SolverSettings.defaults().withRestartPolicy(RestartPolicy.luby(2, 5)),
+                SolverSettings.defaults().withPortfolioSize(3),
+                SolverSettings.defaults().withParallelism(4),
+                SolverSettings.defaults().withParallelism(4).withParallelSplitDepth(100)
+        );
+        for (SolverSettings settings : settingsList) {
+            SolveResult result = new LatinSquareImpl(settings).getVariantsWithLimit(field, 1000000, SolveOptions.unlimited().withNodeBudget(500));
+            assert result.status() == SolveStatus.NODE_BUDGET_EXHAUSTED;
+
+            SolveResult cutOffResult = new LatinSquareImpl(settings).getFirstVariant(field, SolveOptions.unlimited().withNodeBudget(1));
+            assert cutOffResult.status() == SolveStatus.NODE_BUDGET_EXHAUSTED;
+            assert cutOffResult.getFirstVariant() == null;
+
+            LatinSquareImpl latinSquare = new LatinSquareImpl(settings);
+            SolveResult firstResult = latinSquare.getFirstVariant(field, SolveOptions.unlimited().withNodeBudget(100000));
+            assert firstResult.status() == SolveStatus.COMPLETE;
+            assert latinSquare.check(firstResult.getFirstVariant());
+            assert firstResult.getFirstVariant()[0][0] == 1;
+        }
+    }
+
+    @Test
+    public void test_statisticsAreReportedToListener() {
+        Integer[][] field = TestSquares.fiveByFive();
+
+        List<SolverSettings> settingsList = List.of(
+                SolverSettings.defaults(),
+                SolverSettings.defaults().withParallelism(4),
+                SolverSettings.defaults().withBranchingStrategy(BranchingStrategy.minimumVariantsCell())
+        );
+        for (SolverSettings settings : settingsList) {
+            List<SolverStatistics> reported = new ArrayList<>();
+            LatinSquareImpl latinSquare = new LatinSquareImpl(settings.withStatisticsListener(reported::add));
+            int variantsCount = latinSquare.getVariantsWithLimit(field, 100000).size();
+
+            assert reported.size() == 1;
+            SolverStatistics statistics = reported.getFirst();
+            assert statistics.getNodes() >= variantsCount;
+            assert statistics.getMaxDepth() > 0;
+            assert statistics.getFixpointIterations() > 0;
+            assert statistics.getRemovedValues() > 0;
+            assert statistics.getSearchNanos() >= statistics.getBranchingNanos();
+        }
+
+        List<SolverStatistics> reported = new ArrayList<>();
+        new LatinSquareImpl(SolverSettings.defaults().withStatisticsListener(reported::add)).getFirstVariant(field);
+        new LatinSquareImpl(SolverSettings.defaults().withStatisticsListener(reported::add)).countCompletions(field, 10);
+        assert reported.size() == 2;
+        assert reported.getFirst().getRowCandidates() > 0;
+        assert reported.getFirst().getRowCandidates() >= reported.getFirst().getRejectedRowCandidates();
+
+        reported.clear();
+        new LatinSquareImpl(SolverSettings.defaults().withBacktrackingMode(BacktrackingMode.COPY).withStatisticsListener(reported::add)).getVariantsWithLimit(field, 10);
+        assert reported.getFirst().getMatrixCopies() > 0;
+    }
+
+    @Test
+    public void test_flightRecorderEventsAreEmitted() throws IOException {
+        Integer[][] field = TestSquares.fiveByFive();
+        Integer[][] infeasibleField = {
+                { 1, null },
+                { null, 2 }
+        };
+
+        Path path = Files.createTempFile("solver", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("com.smolka.latin.square.Solve");
+                recording.enable("com.smolka.latin.square.SearchLevel");
+                recording.enable("com.smolka.latin.square.Propagation").withoutThreshold();
+                recording.start();
+                new LatinSquareImpl().getVariantsWithLimit(field, 10);
+                new LatinSquareImpl().countCompletions(field, 10);
+                new LatinSquareImpl().countCompletions(infeasibleField, 10);
+                new LatinSquareImpl().visitVariants(infeasibleField, (grid, size) -> true);
+                recording.stop();
+                recording.dump(path);
+            }
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(path);
+            List<RecordedEvent> solveEvents = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("com.smolka.latin.square.Solve"))
+                    .toList();
+            assert solveEvents.size() == 4;
+            for (RecordedEvent event : solveEvents.subList(0, 2)) {
+                assert event.getInt("order") == 5;
+                assert event.getInt("clueCount") == 4;
+                assert event.getLong("nodes") > 0;
+                assert event.getLong("variants") == 10;
+                assert event.getString("outcome").equals("COMPLETE");
+            }
+            for (RecordedEvent event : solveEvents.subList(2, 4)) {
+                assert event.getInt("order") == 2;
+                assert event.getLong("variants") == 0;
+                assert event.getString("outcome").equals("COMPLETE");
+            }
+            assert solveEvents.get(2).getString("operation").equals("count");
+            assert solveEvents.get(3).getString("operation").equals("visit");
+            assert events.stream().anyMatch(event -> event.getEventType().getName().equals("com.smolka.latin.square.SearchLevel")
+                    && event.getInt("depth") == 0 && event.getString("outcome").equals("STOPPED"));
+            assert events.stream().anyMatch(event -> event.getEventType().getName().equals("com.smolka.latin.square.Propagation")
+                    && event.getInt("rounds") > 0);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    // the settings find every variant of the 5x5 grid once, exactly as the default settings do
+    private List<String> variantsOrder(BranchingStrategy branchingStrategy) {
+        return new LatinSquareImpl(SolverSettings.defaults().withBranchingStrategy(branchingStrategy))
+                .getVariantsWithLimit(TestSquares.fiveByFive(), LIMIT).stream()
+                .map(Arrays::deepToString)
+                .toList();
+    }
+
+    private void assertSameVariants(SolverSettings settings) {
+        Integer[][] field = TestSquares.fiveByFive();
+        Set<String> expectedResult = new LatinSquareImpl().getVariantsWithLimit(field, LIMIT).stream()
+                .map(Arrays::deepToString)
+                .collect(Collectors.toSet());
+        assert !expectedResult.isEmpty();
+        assert expectedResult.size() < LIMIT;
+
+        List<Integer[][]> result = new LatinSquareImpl(settings).getVariantsWithLimit(field, LIMIT);
+        Set<String> settingsResult = result.stream()
+                .map(Arrays::deepToString)
+                .collect(Collectors.toSet());
+        assert settingsResult.size() == result.size();
+        assert settingsResult.equals(expectedResult);
+    }
+}
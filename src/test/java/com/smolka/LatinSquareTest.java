@@ -1,13 +1,25 @@
 package com.smolka;
 
-import com.smolka.latin.square.impl.LatinSquareImpl;
+import com.smolka.latin.square.CancellationToken;
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.SolveOptions;
+import com.smolka.latin.square.SolveResult;
+import com.smolka.latin.square.SolveStatus;
+import com.smolka.latin.square.VariantsIterator;
 import org.junit.Test;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public class LatinSquareTest {
+public abstract class LatinSquareTest {
+
+    protected abstract LatinSquare createLatinSquare();
 
     @Test
     public void test_checkNegative() {
@@ -17,7 +29,7 @@ public class LatinSquareTest {
                 { 2, 1, 3 }
         };
 
-        LatinSquareImpl latinSquare = new LatinSquareImpl();
+        LatinSquare latinSquare = createLatinSquare();
         assert !latinSquare.check(field);
     }
 
@@ -29,7 +41,7 @@ public class LatinSquareTest {
                 { 2, 3, 1 }
         };
 
-        LatinSquareImpl latinSquare = new LatinSquareImpl();
+        LatinSquare latinSquare = createLatinSquare();
         assert latinSquare.check(field);
     }
 
@@ -47,7 +59,7 @@ public class LatinSquareTest {
                 { null, null, null, null, null, null, null, null, null },
         };
 
-        LatinSquareImpl latinSquare = new LatinSquareImpl();
+        LatinSquare latinSquare = createLatinSquare();
 
         int limit = 1000000;
 
@@ -64,19 +76,9 @@ public class LatinSquareTest {
 
     @Test
     public void test_findingFirstEverest() {
-        Integer[][] field = {
-                { 8, null, null, null, null, null, null, null, null },
-                { null, null, 3, 6, null, null, null, null, null },
-                { null, 7, null, null, 9, null, 2, null, null },
-                { null, 5, null, null, null, 7, null, null, null },
-                { null, null, null, null, 4, 5, 7, null, null },
-                { null, null, null, 1, null, null, null, 3, null },
-                { null, null, 1, null, null, null, null, 6, 8 },
-                { null, null, 8, 5, null, null, null, 1, null },
-                { null, 9, null, null, null, null, 4, null, null },
-        };
+        Integer[][] field = TestSquares.everest();
 
-        LatinSquareImpl latinSquare = new LatinSquareImpl();
+        LatinSquare latinSquare = createLatinSquare();
 
         Integer[][] result = latinSquare.getFirstVariant(field);
         assert result != null;
@@ -95,7 +97,7 @@ public class LatinSquareTest {
 
         int limit = 2;
 
-        LatinSquareImpl latinSquare = new LatinSquareImpl();
+        LatinSquare latinSquare = createLatinSquare();
         List<Integer[][]> result = latinSquare.getVariantsWithLimit(field, limit);
 
         for (Integer[][] variantInResult : result) {
@@ -107,7 +109,7 @@ public class LatinSquareTest {
         Set<Integer[][]> setForDupesCheck = new HashSet<>(result);
         assert setForDupesCheck.size() == result.size();
     }
-    
+
     @Test
     public void test_findingFirstSimple() {
         Integer[][] field = {
@@ -118,7 +120,7 @@ public class LatinSquareTest {
                 { 3, null, null, null, null }
         };
 
-        LatinSquareImpl latinSquare = new LatinSquareImpl();
+        LatinSquare latinSquare = createLatinSquare();
         Integer[][] result = latinSquare.getFirstVariant(field);
         assert result != null;
         assert latinSquare.check(result);
@@ -132,9 +134,191 @@ public class LatinSquareTest {
                 { null, 1, null }
         };
 
-        LatinSquareImpl latinSquare = new LatinSquareImpl();
+        LatinSquare latinSquare = createLatinSquare();
         Integer[][] result = latinSquare.getFirstVariant(field);
         assert result != null;
         assert latinSquare.check(result);
     }
+
+    @Test
+    public void test_unlimitedSolveOptionsAreComplete() {
+        Integer[][] field = TestSquares.fiveByFive();
+
+        LatinSquare latinSquare = createLatinSquare();
+        SolveResult firstResult = latinSquare.getFirstVariant(field, SolveOptions.unlimited().withTimeout(Duration.ofMinutes(1)));
+        assert firstResult.isComplete();
+        assert latinSquare.check(firstResult.getFirstVariant());
+
+        SolveResult allResult = latinSquare.getVariantsWithLimit(field, 100000, SolveOptions.unlimited());
+        assert allResult.isComplete();
+        assert allResult.variants().size() == latinSquare.getVariantsWithLimit(field, 100000).size();
+    }
+
+    @Test
+    public void test_solveBudgetsCutOffSearch() {
+        Integer[][] field = new Integer[7][7];
+        LatinSquare latinSquare = createLatinSquare();
+
+        SolveResult nodeBudgetResult = latinSquare.getVariantsWithLimit(field, 1000000, SolveOptions.unlimited().withNodeBudget(2000));
+        assert nodeBudgetResult.status() == SolveStatus.NODE_BUDGET_EXHAUSTED;
+        assert !nodeBudgetResult.isComplete();
+        assert nodeBudgetResult.variants().size() < 1000000;
+        assert nodeBudgetResult.variants().stream().allMatch(latinSquare::check);
+
+        SolveResult deadlineResult = latinSquare.getVariantsWithLimit(field, 1000000, SolveOptions.unlimited().withDeadline(Instant.now()));
+        assert deadlineResult.status() == SolveStatus.DEADLINE_EXCEEDED;
+
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+        SolveResult cancelledResult = latinSquare.getFirstVariant(field, SolveOptions.unlimited().withCancellationToken(cancellationToken));
+        assert cancelledResult.status() == SolveStatus.CANCELLED;
+        assert cancelledResult.getFirstVariant() == null;
+    }
+
+    @Test
+    public void test_streamingVariantsLikeList() {
+        Integer[][] field = TestSquares.fiveByFive();
+
+        LatinSquare latinSquare = createLatinSquare();
+
+        Set<String> listResult = latinSquare.getVariantsWithLimit(field, 100000).stream()
+                .map(Arrays::deepToString)
+                .collect(Collectors.toSet());
+
+        Set<String> streamResult;
+        try (Stream<int[][]> stream = latinSquare.streamVariants(field)) {
+            streamResult = stream
+                    .map(Arrays::deepToString)
+                    .collect(Collectors.toSet());
+        }
+
+        assert listResult.size() == 176;
+        assert streamResult.equals(listResult);
+    }
+
+    @Test
+    public void test_iteratingVariantsOnDemand() {
+        Integer[][] field = new Integer[9][9];
+
+        LatinSquare latinSquare = createLatinSquare();
+
+        try (Stream<int[][]> stream = latinSquare.streamVariants(field)) {
+            List<int[][]> result = stream.limit(3).toList();
+            assert result.size() == 3;
+            for (int[][] variant : result) {
+                assert latinSquare.check(Arrays.stream(variant).map(row -> Arrays.stream(row).boxed().toArray(Integer[]::new)).toArray(Integer[][]::new));
+            }
+        }
+
+        VariantsIterator iterator = latinSquare.iterateVariants(field);
+        assert iterator.hasNext();
+        int[][] first = iterator.next();
+        assert first.length == 9;
+        iterator.close();
+        assert !iterator.hasNext();
+    }
+
+    @Test
+    public void test_visitingVariantsLikeList() {
+        Integer[][] field = TestSquares.fiveByFive();
+
+        LatinSquare latinSquare = createLatinSquare();
+
+        Set<String> listResult = latinSquare.getVariantsWithLimit(field, 100000).stream()
+                .map(variant -> Arrays.toString(Arrays.stream(variant).flatMap(Arrays::stream).mapToInt(Integer::intValue).toArray()))
+                .collect(Collectors.toSet());
+
+        Set<String> visitedResult = new HashSet<>();
+        latinSquare.visitVariants(field, (grid, size) -> {
+            assert size == 5;
+            visitedResult.add(Arrays.toString(grid));
+            return true;
+        });
+
+        assert visitedResult.size() == 176;
+        assert visitedResult.equals(listResult);
+
+        int[] visitedCount = { 0 };
+        latinSquare.visitVariants(new Integer[9][9], (grid, size) -> ++visitedCount[0] < 10);
+        assert visitedCount[0] == 10;
+    }
+
+    @Test
+    public void test_countingCompletions() {
+        Integer[][] field = TestSquares.fiveByFive();
+
+        Integer[][] twoRowsField = {
+                { 1, 2, 3, 4, 5, 6 },
+                { 2, 3, 1, 6, 4, 5 },
+                { 4, 1, 6, 5, 2, 3 },
+                { 6, 5, 4, 3, 1, 2 },
+                { null, null, null, null, null, null },
+                { null, 6, null, null, null, null }
+        };
+
+        LatinSquare latinSquare = createLatinSquare();
+
+        assert latinSquare.countCompletions(field) == 176;
+        assert latinSquare.countCompletions(field, 100) == 100;
+        assert latinSquare.countCompletions(new Integer[4][4]) == 576;
+        assert latinSquare.countCompletions(new Integer[5][5]) == 161280;
+        assert latinSquare.countCompletions(new Integer[][] { { 1, null }, { null, 2 } }) == 0;
+        assert latinSquare.countCompletions(twoRowsField) == latinSquare.getVariantsWithLimit(twoRowsField, 100).size();
+        twoRowsField[5][1] = null;
+        assert latinSquare.countCompletions(twoRowsField) == latinSquare.getVariantsWithLimit(twoRowsField, 100).size();
+    }
+
+    @Test
+    public void test_primitiveOverloads() {
+        int[][] field = {
+                { 1, 0, 0, 0, 0 },
+                { 0, 0, 3, 0, 0 },
+                { 0, 0, 0, 0, 5 },
+                { 0, 4, 0, 0, 0 },
+                { 0, 0, 0, 0, 0 }
+        };
+
+        LatinSquare latinSquare = createLatinSquare();
+
+        assert latinSquare.check(new int[][] { { 1, 2, 3 }, { 3, 1, 2 }, { 2, 3, 1 } });
+        assert !latinSquare.check(new int[][] { { 1, 2, 3 }, { 1, 3, 2 }, { 2, 1, 3 } });
+        assert !latinSquare.check(new int[][] { { 1, 2, 3 }, { 3, 1, 2 }, { 2, 3, 0 } });
+        assert !latinSquare.check(new int[][] { { 1, 2, 4 }, { 4, 1, 2 }, { 2, 4, 1 } });
+        assert !latinSquare.check(new int[][] { { 1, 2 }, { 2, 1, 3 } });
+        assert !latinSquare.check(new Integer[][] { { 1, 2 }, { 2, 0 } });
+
+        int[][] first = latinSquare.getFirstVariant(field);
+        assert latinSquare.check(first);
+        assert first[1][2] == 3 && first[3][1] == 4;
+
+        List<int[][]> result = latinSquare.getVariantsWithLimit(field, 1000);
+        assert result.size() == 176;
+        assert result.stream().allMatch(latinSquare::check);
+        assert latinSquare.countCompletions(field) == 176;
+    }
+
+    @Test
+    public void test_checkWideSquares() {
+        int size = 70;
+        int[][] field = new int[size][size];
+        Integer[][] boxedField = new Integer[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                field[row][column] = (row + column) % size + 1;
+                boxedField[row][column] = field[row][column];
+            }
+        }
+
+        LatinSquare latinSquare = createLatinSquare();
+        assert latinSquare.check(field);
+        assert latinSquare.check(boxedField);
+
+        field[3][5] = field[3][6];
+        boxedField[69][0] = boxedField[68][0];
+        assert !latinSquare.check(field);
+        assert !latinSquare.check(boxedField);
+
+        assert !latinSquare.check(new Integer[][] { { 0, 1 }, { 1, 0 } });
+        assert !latinSquare.check(new int[][] { { 1, 2 }, { 2, 0 } });
+    }
 }
@@ -0,0 +1,38 @@
+package com.smolka;
+
+import com.smolka.latin.square.VariantsIterator;
+import com.smolka.latin.square.impl.SearchVariantsIterator;
+import org.junit.Test;
+
+public class SearchVariantsIteratorTest {
+
+    @Test
+    public void test_searchErrorReachesConsumer() {
+        VariantsIterator iterator = new SearchVariantsIterator(callbackFunction -> {
+            callbackFunction.apply(new int[][] { { 1 } });
+            throw new StackOverflowError();
+        });
+
+        assert iterator.next()[0][0] == 1;
+        try {
+            iterator.hasNext();
+            assert false;
+        } catch (StackOverflowError e) {
+            assert !iterator.hasNext();
+        }
+    }
+
+    @Test
+    public void test_searchExceptionReachesConsumer() {
+        VariantsIterator iterator = new SearchVariantsIterator(callbackFunction -> {
+            throw new IllegalStateException("search failed");
+        });
+
+        try {
+            iterator.hasNext();
+            assert false;
+        } catch (IllegalStateException e) {
+            assert e.getMessage().equals("search failed");
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.smolka;
+
+import com.smolka.latin.square.impl.NogoodStore;
+import com.smolka.latin.square.impl.PropagationMode;
+import com.smolka.latin.square.impl.PropagationQueue;
+import com.smolka.latin.square.impl.SelectionMatrix;
+import com.smolka.latin.square.impl.SolverStatistics;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class SelectionMatrixTest {
+
+    @Test
+    public void test_wideDomainsArePropagated() {
+        int size = 70;
+        Integer[][] field = new Integer[size][size];
+        for (int column = 0; column < size; column++) {
+            field[0][column] = column + 1;
+        }
+
+        SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(field, allElements(size), Integer.class);
+
+        for (int column = 0; column < size; column++) {
+            assert selectionMatrix.getVariantsSize(1, column) == size - 1;
+            for (int symbolIndex = selectionMatrix.nextVariant(1, column, 0); symbolIndex >= 0; symbolIndex = selectionMatrix.nextVariant(1, column, symbolIndex + 1)) {
+                assert selectionMatrix.getSymbol(symbolIndex) != column + 1;
+            }
+        }
+        assert selectionMatrix.getVariantsSize(0, 69) == 1;
+        assert selectionMatrix.getSymbol(selectionMatrix.nextVariant(0, 69, 0)) == 70;
+    }
+
+    @Test
+    public void test_singleWordDomainsAreCounted() {
+        Integer[][] field = new Integer[9][9];
+        field[0][0] = 5;
+
+        SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(field, allElements(9), Integer.class);
+
+        assert selectionMatrix.getVariantsSize(0, 0) == 1;
+        assert selectionMatrix.getSymbol(selectionMatrix.nextVariant(0, 0, 0)) == 5;
+        assert selectionMatrix.nextVariant(0, 0, selectionMatrix.nextVariant(0, 0, 0) + 1) == -1;
+        assert selectionMatrix.getVariantsSize(0, 1) == 8;
+        assert selectionMatrix.getVariantsSize(1, 1) == 9;
+    }
+
+    @Test
+    public void test_rollbackRestoresDomains() {
+        Integer[][] field = {
+                { 1, 2, 3, 4 },
+                { null, null, null, null },
+                { null, null, null, null },
+                { null, null, null, null }
+        };
+
+        SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(field, allElements(4), Integer.class);
+
+        int checkpoint = selectionMatrix.checkpoint();
+        Map<Integer, Integer> row = new HashMap<>(Map.of(0, 2, 1, 1, 2, 4, 3, 3));
+        assert selectionMatrix.setRowToMatrixAndReturnValidity(1, row);
+        assert selectionMatrix.getVariantsSize(2, 0) == 2;
+
+        selectionMatrix.rollback(checkpoint);
+        assert selectionMatrix.checkpoint() == checkpoint;
+
+        for (int rowIndex = 1; rowIndex < 4; rowIndex++) {
+            for (int column = 0; column < 4; column++) {
+                assert selectionMatrix.getVariantsSize(rowIndex, column) == 3;
+            }
+        }
+        assert !selectionMatrix.isFilled();
+    }
+
+    @Test
+    public void test_learnedNogoodRejectsRepeatedDecision() {
+        Integer[][] field = {
+                { 1, 2, 3, 4 },
+                { null, null, null, null },
+                { null, null, null, null },
+                { null, null, null, null }
+        };
+
+        SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(field, allElements(4), Integer.class);
+        NogoodStore nogoodStore = new NogoodStore(1);
+        selectionMatrix.setNogoodStore(nogoodStore);
+        SolverStatistics statistics = new SolverStatistics();
+        selectionMatrix.setStatistics(statistics);
+
+        int checkpoint = selectionMatrix.checkpoint();
+        assert selectionMatrix.setElementToMatrixAndReturnValidity(1, 0, 2);
+        selectionMatrix.learnNogood();
+        selectionMatrix.rollback(checkpoint);
+        assert nogoodStore.getSize() == 1;
+
+        assert !selectionMatrix.setElementToMatrixAndReturnValidity(1, 0, 2);
+        selectionMatrix.rollback(checkpoint);
+        assert nogoodStore.getHitsCount() == 1;
+        assert statistics.getNogoodHits() == 1;
+
+        assert selectionMatrix.setElementToMatrixAndReturnValidity(1, 0, 3);
+        selectionMatrix.learnNogood();
+        selectionMatrix.rollback(checkpoint);
+        assert nogoodStore.getSize() == 1;
+        assert nogoodStore.getEvictionsCount() == 1;
+        assert statistics.getLearnedNogoods() == 2;
+
+        assert selectionMatrix.setElementToMatrixAndReturnValidity(1, 0, 2);
+        assert selectionMatrix.getCopy().getNogoodStore() == nogoodStore;
+    }
+
+    @Test
+    public void test_allDifferentFindsHiddenSingle() {
+        Integer[][] field = {
+                { null, 2, null, 1, null, 8, null, null },
+                { 2, null, null, null, null, null, null, null },
+                { null, 7, null, 6, null, 1, 3, 8 },
+                { null, null, null, 3, 6, null, 7, null },
+                { null, null, null, null, null, null, 4, null },
+                { 8, null, 1, null, null, null, null, 4 },
+                { null, null, 6, null, 4, 7, null, 3 },
+                { null, null, null, null, null, null, null, null }
+        };
+
+        SelectionMatrix<Integer> subSegmentsMatrix = new SelectionMatrix<>(field, allElements(8), Integer.class, PropagationMode.SUB_SEGMENTS);
+        assert subSegmentsMatrix.getVariantsSize(0, 2) > 1;
+
+        for (PropagationMode propagationMode : List.of(PropagationMode.ALL_DIFFERENT, PropagationMode.SUB_SEGMENTS_AND_ALL_DIFFERENT)) {
+            SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(field, allElements(8), Integer.class, propagationMode);
+            assert selectionMatrix.getVariantsSize(0, 2) == 1;
+            assert selectionMatrix.getSymbol(selectionMatrix.nextVariant(0, 2, 0)) == 4;
+        }
+    }
+
+    @Test
+    public void test_propagationDetectsInfeasibleField() {
+        Integer[][] field = {
+                { null, 1, null, null, 4, null },
+                { null, null, null, 5, null, 4 },
+                { null, 5, 6, 1, null, null },
+                { null, null, null, 4, 1, 6 },
+                { null, 3, 1, null, null, null },
+                { null, null, null, null, null, null }
+        };
+
+        for (PropagationMode propagationMode : PropagationMode.values()) {
+            try {
+                new SelectionMatrix<>(field, allElements(6), Integer.class, propagationMode);
+                assert false;
+            } catch (RuntimeException e) {
+                assert e.getMessage().equals("Matrix is invalid");
+            }
+        }
+    }
+
+    @Test
+    public void test_symbolViewsFollowDomains() {
+        Integer[][] field = {
+                { 1, 2, 3, 4 },
+                { null, null, null, null },
+                { null, null, null, null },
+                { null, null, null, null }
+        };
+
+        SelectionMatrix<Integer> selectionMatrix = new SelectionMatrix<>(field, allElements(4), Integer.class);
+        assert selectionMatrix.getColumnsCountForSymbolInRow(1, 1) == 3;
+        assert selectionMatrix.getRowsCountForSymbolInColumn(0, 1) == 1;
+        assert selectionMatrix.getRowsCountForSymbolInColumn(0, 2) == 3;
+
+        int checkpoint = selectionMatrix.checkpoint();
+        assert selectionMatrix.setElementToMatrixAndReturnValidity(1, 0, 2);
+        assert selectionMatrix.getColumnsCountForSymbolInRow(1, 2) == 1;
+        assert selectionMatrix.getRowsCountForSymbolInColumn(0, 2) == 1;
+        assert selectionMatrix.getColumnsCountForSymbolInRow(2, 2) == 2;
+
+        selectionMatrix.rollback(checkpoint);
+        assert selectionMatrix.getColumnsCountForSymbolInRow(1, 2) == 3;
+        assert selectionMatrix.getRowsCountForSymbolInColumn(0, 2) == 3;
+    }
+
+    @Test
+    public void test_propagationQueueDeduplicatesAndPrefersSingletonEvents() {
+        PropagationQueue propagationQueue = new PropagationQueue(6);
+        propagationQueue.schedule(0, false);
+        propagationQueue.schedule(1, false);
+        propagationQueue.schedule(0, false);
+        propagationQueue.schedule(2, false);
+        propagationQueue.schedule(2, true);
+        propagationQueue.schedule(5, true);
+
+        assert propagationQueue.poll() == 2;
+        assert propagationQueue.poll() == 5;
+        assert propagationQueue.poll() == 0;
+        assert propagationQueue.poll() == 1;
+        assert propagationQueue.isEmpty();
+        assert propagationQueue.poll() == -1;
+    }
+
+    private Set<Integer> allElements(int size) {
+        return IntStream.range(1, size + 1).boxed().collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,74 @@
+package com.smolka;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.SolutionBuffer;
+import com.smolka.latin.square.SolutionEncoding;
+import com.smolka.latin.square.impl.LatinSquareImpl;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class SolutionBufferTest {
+
+    @Test
+    public void test_bufferHoldsSameVariantsAsList() {
+        Integer[][] field = TestSquares.fiveByFive();
+
+        LatinSquare latinSquare = new LatinSquareImpl();
+
+        Set<String> listResult = latinSquare.getVariantsWithLimit(field, 100000).stream()
+                .map(Arrays::deepToString)
+                .collect(Collectors.toSet());
+
+        for (boolean offHeap : List.of(false, true)) {
+            SolutionBuffer buffer = latinSquare.getVariantsBuffer(field, 100000, offHeap);
+            assert buffer.getEncoding() == SolutionEncoding.NIBBLE;
+            assert buffer.getRecordBytes() == 13;
+            assert buffer.getCount() == 176;
+
+            Set<String> bufferResult = new HashSet<>();
+            for (int[][] variant : buffer) {
+                bufferResult.add(Arrays.deepToString(variant));
+            }
+            assert bufferResult.equals(listResult);
+        }
+
+        assert latinSquare.getVariantsBuffer(field, 10, false).getCount() == 10;
+    }
+
+    @Test
+    public void test_encodingsRoundTrip() {
+        for (int size : List.of(1, 4, 9, 16, 17, 256, 257)) {
+            SolutionBuffer buffer = new SolutionBuffer(size, size % 2 == 0);
+            assert buffer.getEncoding() == SolutionEncoding.forSize(size);
+
+            int squares = size > 64 ? 10 : 20000 / (size * size) + 2;
+            for (int shift = 0; shift < squares; shift++) {
+                buffer.add(cyclicGrid(size, shift));
+            }
+
+            int[] decoded = new int[size * size];
+            for (int shift = squares - 1; shift >= 0; shift--) {
+                buffer.decode(shift, decoded);
+                assert Arrays.equals(decoded, cyclicGrid(size, shift));
+            }
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_valueOutOfSizeIsRejected() {
+        new SolutionBuffer(3).add(new int[] { 1, 2, 3, 2, 3, 1, 3, 1, 4 });
+    }
+
+    private int[] cyclicGrid(int size, int shift) {
+        int[] grid = new int[size * size];
+        for (int cell = 0; cell < grid.length; cell++) {
+            grid[cell] = (cell / size + cell % size + shift) % size + 1;
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,107 @@
+package com.smolka;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.SolutionEncoding;
+import com.smolka.latin.square.SolutionFileReader;
+import com.smolka.latin.square.SolutionFileWriter;
+import com.smolka.latin.square.impl.LatinSquareImpl;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class SolutionFileTest {
+
+    @Test
+    public void test_exportedVariantsAreReadBack() throws IOException {
+        Integer[][] field = TestSquares.fiveByFive();
+
+        LatinSquare latinSquare = new LatinSquareImpl();
+        Set<String> listResult = latinSquare.getVariantsWithLimit(field, 100000).stream()
+                .map(Arrays::deepToString)
+                .collect(Collectors.toSet());
+
+        Path path = Files.createTempFile("latin-squares", ".bin");
+        try {
+            assert latinSquare.exportVariants(field, 100000, path) == 176;
+            assert Files.size(path) == 32 + 176 * 13;
+
+            try (SolutionFileReader reader = new SolutionFileReader(path)) {
+                assert reader.getSize() == 5;
+                assert reader.getEncoding() == SolutionEncoding.NIBBLE;
+                assert reader.getCount() == 176;
+
+                Set<String> fileResult = new HashSet<>();
+                for (int[][] variant : reader) {
+                    fileResult.add(Arrays.deepToString(variant));
+                }
+                assert fileResult.equals(listResult);
+
+                List<String> visited = new ArrayList<>();
+                reader.visit((grid, size) -> visited.add(Arrays.toString(grid)) && visited.size() < 3);
+                assert visited.size() == 3;
+            }
+
+            assert latinSquare.exportVariants(field, 7, path) == 7;
+            assert Files.size(path) == 32 + 7 * 13;
+            try (SolutionFileReader reader = new SolutionFileReader(path)) {
+                assert reader.getCount() == 7;
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void test_byteEncodedSquaresRoundTrip() throws IOException {
+        int size = 20;
+        Path path = Files.createTempFile("latin-squares", ".bin");
+        try {
+            try (SolutionFileWriter writer = new SolutionFileWriter(path, size, 3)) {
+                for (int shift = 0; shift < size; shift++) {
+                    writer.add(cyclicGrid(size, shift));
+                }
+            }
+
+            try (SolutionFileReader reader = new SolutionFileReader(path)) {
+                assert reader.getEncoding() == SolutionEncoding.BYTE;
+                assert reader.getCount() == size;
+                assert Files.size(path) == 32 + size * size * size;
+
+                int[] grid = new int[size * size];
+                for (int shift = size - 1; shift >= 0; shift--) {
+                    reader.decode(shift, grid);
+                    assert Arrays.equals(grid, cyclicGrid(size, shift));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_foreignFileIsRejected() throws IOException {
+        Path path = Files.createTempFile("latin-squares", ".bin");
+        try {
+            Files.write(path, new byte[64]);
+            new SolutionFileReader(path).close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private int[] cyclicGrid(int size, int shift) {
+        int[] grid = new int[size * size];
+        for (int cell = 0; cell < grid.length; cell++) {
+            grid[cell] = (cell / size + cell % size + shift) % size + 1;
+        }
+        return grid;
+    }
+}
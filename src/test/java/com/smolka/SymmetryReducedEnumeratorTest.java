@@ -0,0 +1,89 @@
+package com.smolka;
+
+import com.smolka.latin.square.LatinSquare;
+import com.smolka.latin.square.impl.DancingLinksLatinSquare;
+import com.smolka.latin.square.impl.LatinSquareImpl;
+import com.smolka.latin.square.impl.SymmetryReducedEnumerator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class SymmetryReducedEnumeratorTest {
+
+    @Test
+    public void test_reducedSquaresOfEmptyGrid() {
+        SymmetryReducedEnumerator enumerator = new SymmetryReducedEnumerator();
+
+        assert enumerator.countReducedVariants(new Integer[4][4]) == 4;
+        assert enumerator.countReducedVariants(new Integer[5][5]) == 56;
+        assert enumerator.countReducedVariants(new Integer[6][6]) == 9408;
+        assert enumerator.getOrbitSize(new Integer[5][5]) == 120 * 24;
+
+        enumerator.visitReducedVariants(new Integer[5][5], (grid, size) -> {
+            for (int index = 0; index < size; index++) {
+                assert grid[index] == index + 1;
+                assert grid[index * size] == index + 1;
+            }
+            return true;
+        });
+    }
+
+    @Test
+    public void test_expandedOrbitsGiveAllVariants() {
+        Integer[][] emptyField = new Integer[4][4];
+        Integer[][] symmetricField = {
+                { 1, 2, null, null, null },
+                { 2, 1, null, null, null },
+                { null, null, null, null, null },
+                { null, null, null, null, null },
+                { null, null, null, null, null }
+        };
+        Integer[][] shiftedField = {
+                { 1, null, null, null, null },
+                { null, 2, null, null, null },
+                { null, null, null, null, null },
+                { null, null, null, null, null },
+                { null, null, null, null, null }
+        };
+
+        for (LatinSquare latinSquare : List.of(new LatinSquareImpl(), new DancingLinksLatinSquare())) {
+            SymmetryReducedEnumerator enumerator = new SymmetryReducedEnumerator(latinSquare);
+
+            for (Integer[][] field : List.of(emptyField, symmetricField, shiftedField)) {
+                Set<String> expectedResult = latinSquare.getVariantsWithLimit(field, 1000000).stream()
+                        .map(variant -> Arrays.toString(Arrays.stream(variant).flatMap(Arrays::stream).mapToInt(Integer::intValue).toArray()))
+                        .collect(Collectors.toSet());
+
+                long reducedCount = enumerator.countReducedVariants(field);
+                assert reducedCount * enumerator.getOrbitSize(field) == expectedResult.size();
+                assert reducedCount < expectedResult.size();
+
+                List<String> expandedResult = new ArrayList<>();
+                enumerator.visitVariants(field, (grid, size) -> expandedResult.add(Arrays.toString(grid)));
+                assert expandedResult.size() == expectedResult.size();
+                assert new HashSet<>(expandedResult).equals(expectedResult);
+            }
+        }
+    }
+
+    @Test
+    public void test_expandingOrbitLazily() {
+        Integer[][] field = new Integer[4][4];
+        SymmetryReducedEnumerator enumerator = new SymmetryReducedEnumerator();
+
+        int[][] reducedVariant = { { 1, 2, 3, 4 }, { 2, 1, 4, 3 }, { 3, 4, 1, 2 }, { 4, 3, 2, 1 } };
+        Iterator<int[][]> orbit = enumerator.expandOrbit(field, reducedVariant);
+
+        assert Arrays.deepEquals(orbit.next(), reducedVariant);
+        Set<String> result = new HashSet<>();
+        result.add(Arrays.deepToString(reducedVariant));
+        orbit.forEachRemaining(variant -> result.add(Arrays.deepToString(variant)));
+        assert result.size() == 24 * 6;
+    }
+}
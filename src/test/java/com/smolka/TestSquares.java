@@ -0,0 +1,33 @@
+package com.smolka;
+
+// fresh copies of the grids several tests solve, so a test may change its copy
+public final class TestSquares {
+
+    private TestSquares() {
+    }
+
+    // 176 completions
+    public static Integer[][] fiveByFive() {
+        return new Integer[][] {
+                { 1, null, null, null, null },
+                { null, null, 3, null, null },
+                { null, null, null, null, 5 },
+                { null, 4, null, null, null },
+                { null, null, null, null, null }
+        };
+    }
+
+    public static Integer[][] everest() {
+        return new Integer[][] {
+                { 8, null, null, null, null, null, null, null, null },
+                { null, null, 3, 6, null, null, null, null, null },
+                { null, 7, null, null, 9, null, 2, null, null },
+                { null, 5, null, null, null, 7, null, null, null },
+                { null, null, null, null, 4, 5, 7, null, null },
+                { null, null, null, 1, null, null, null, 3, null },
+                { null, null, 1, null, null, null, null, 6, 8 },
+                { null, null, 8, 5, null, null, null, 1, null },
+                { null, 9, null, null, null, null, 4, null, null },
+        };
+    }
+}
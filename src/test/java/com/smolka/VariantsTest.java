@@ -1,11 +1,19 @@
 package com.smolka;
 
+import com.smolka.latin.square.impl.Branch;
+import com.smolka.latin.square.impl.LongVariantsDomain;
+import com.smolka.latin.square.impl.RowBranchingStrategy;
+import com.smolka.latin.square.impl.SelectionMatrix;
+import com.smolka.latin.square.impl.VariantsDomain;
 import com.smolka.latin.square.impl.VariantsFinder;
+import com.smolka.latin.square.impl.WordsVariantsDomain;
 import org.junit.Test;
 
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class VariantsTest {
 
@@ -51,4 +59,64 @@ public class VariantsTest {
 
         assert resultSet.size() == countOfVariants;
     }
+
+    @Test
+    public void testLongVariantsDomain() {
+        VariantsDomain domain = VariantsDomain.full(9);
+        assert domain instanceof LongVariantsDomain;
+        assert domain.size() == 9;
+
+        assert domain.remove(0);
+        assert !domain.remove(0);
+
+        VariantsDomain other = VariantsDomain.empty(9);
+        other.add(1);
+        other.add(8);
+        assert domain.removeAll(other);
+        assert domain.size() == 6;
+        assert domain.first() == 2;
+        assert domain.next(8) == -1;
+
+        domain.reset(5);
+        assert domain.size() == 1;
+        assert domain.first() == 5;
+        assert domain.equals(domain.copy());
+    }
+
+    @Test
+    public void testWordsVariantsDomain() {
+        VariantsDomain domain = VariantsDomain.full(130);
+        assert domain instanceof WordsVariantsDomain;
+        assert domain.size() == 130;
+
+        VariantsDomain other = VariantsDomain.empty(130);
+        for (int index = 0; index < 129; index++) {
+            other.add(index);
+        }
+        assert domain.removeAll(other);
+        assert domain.size() == 1;
+        assert domain.first() == 129;
+        assert domain.next(64) == 129;
+
+        VariantsDomain copy = domain.copy();
+        assert copy.remove(129);
+        assert copy.isEmpty();
+        assert !domain.isEmpty();
+    }
+
+    @Test
+    public void testRowAlternativesStopOnCondition() {
+        Integer[][] field = new Integer[9][9];
+        field[0][0] = 1;
+        Set<Integer> allElements = IntStream.rangeClosed(1, 9).boxed().collect(Collectors.toSet());
+        Branch<Integer> branch = new RowBranchingStrategy().select(new SelectionMatrix<>(field, allElements, Integer.class));
+
+        int[] alternativesCount = { 0 };
+        branch.forEachAlternative(alternative -> {
+            alternativesCount[0]++;
+            return false;
+        }, () -> alternativesCount[0] >= 5);
+
+        assert alternativesCount[0] == 5;
+    }
 }
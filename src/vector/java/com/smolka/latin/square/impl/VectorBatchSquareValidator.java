@@ -0,0 +1,73 @@
+package com.smolka.latin.square.impl;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+// every row is loaded in lanes once: each value becomes the bit 1 << (value - 1), the lanes are
+// or-reduced into the row mask and or-ed lane-wise into the column masks; a line is a permutation
+// when its values are in range and its mask is full. Squares above 32 go to the scalar validator
+public class VectorBatchSquareValidator implements BatchSquareValidator {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private static final int MAX_VECTOR_SIZE = Integer.SIZE;
+
+    private final BatchSquareValidator scalarValidator = BatchSquareValidator.scalar();
+
+    @Override
+    public boolean[] checkAll(int[] squares, int size) {
+        if (size > MAX_VECTOR_SIZE) {
+            return scalarValidator.checkAll(squares, size);
+        }
+
+        int count = ScalarBatchSquareValidator.getSquaresCount(squares, size);
+        boolean[] result = new boolean[count];
+        int[] columnMasks = new int[size];
+        for (int square = 0; square < count; square++) {
+            result[square] = check(squares, square * size * size, size, columnMasks);
+        }
+        return result;
+    }
+
+    private boolean check(int[] squares, int offset, int size, int[] columnMasks) {
+        int fullMask = size == Integer.SIZE ? -1 : (1 << size) - 1;
+        IntVector one = IntVector.broadcast(SPECIES, 1);
+        Arrays.fill(columnMasks, 0);
+
+        for (int row = 0; row < size; row++) {
+            int rowOffset = offset + row * size;
+            int rowMask = 0;
+            for (int column = 0; column < size; column += SPECIES.length()) {
+                VectorMask<Integer> inRange = SPECIES.indexInRange(column, size);
+                IntVector values = IntVector.fromArray(SPECIES, squares, rowOffset + column, inRange);
+
+                VectorMask<Integer> outOfRange = values.compare(VectorOperators.LT, 1, inRange)
+                        .or(values.compare(VectorOperators.GT, size, inRange));
+                if (outOfRange.anyTrue()) {
+                    return false;
+                }
+
+                IntVector bits = one.lanewise(VectorOperators.LSHL, values.sub(1)).blend(0, inRange.not());
+                rowMask |= bits.reduceLanes(VectorOperators.OR);
+                IntVector.fromArray(SPECIES, columnMasks, column, inRange)
+                        .or(bits)
+                        .intoArray(columnMasks, column, inRange);
+            }
+
+            if (rowMask != fullMask) {
+                return false;
+            }
+        }
+
+        for (int columnMask : columnMasks) {
+            if (columnMask != fullMask) {
+                return false;
+            }
+        }
+        return true;
+    }
+}